@@ -1,5 +1,6 @@
 plugins {
     alias(libs.plugins.android.application)
+    alias(libs.plugins.room)
 }
 
 android {
@@ -33,16 +34,24 @@ android {
     }
 }
 
+// Exported schemas are checked in; MigrationTestHelper reads them from the androidTest assets.
+room {
+    schemaDirectory("$projectDir/schemas")
+}
+
 dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     implementation(libs.room.runtime)
+    implementation(libs.room.paging)
+    implementation(libs.paging.runtime)
     implementation("androidx.media:media:1.7.1")
     testImplementation("org.mockito:mockito-core:5.8.0")
     annotationProcessor(libs.room.compiler)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.room.testing)
 }
\ No newline at end of file
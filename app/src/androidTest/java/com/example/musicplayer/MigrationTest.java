@@ -0,0 +1,124 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Schemas 1-4 predate schema export and were reconstructed from the migrations; 5.json is exported by the
+// build. Each step is validated against its schema, so a migration that drifts from the entities fails here.
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final Migration[] ALL_MIGRATIONS = {
+            AppDatabase.MIGRATION_1_2, AppDatabase.MIGRATION_2_3, AppDatabase.MIGRATION_3_4,
+            AppDatabase.MIGRATION_4_5};
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    private void createVersion1() {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1)) {
+            db.execSQL("INSERT INTO playlists (playlistId, name, createdAt) VALUES " +
+                    "(1, 'Road', 100), (2, 'Empty', 200)");
+            // Song 99 never makes it into the library.
+            db.execSQL("INSERT INTO playlist_songs (playlistId, songId) VALUES (1, 30), (1, 10), (1, 20), (1, 99)");
+        }
+    }
+
+    private static void insertSongs(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT INTO songs (id, title, artist, path, duration, albumId) VALUES " +
+                "(10, 'Beta', 'Artist', 'content://media/external/audio/media/10', 1000, 0), " +
+                "(20, 'alpha', 'Artist', 'content://media/external/audio/media/20', 2000, 0), " +
+                "(30, 'Gamma', 'Artist', 'content://media/external/audio/media/30', 3000, 0)");
+    }
+
+    private static List<Long> longs(SupportSQLiteDatabase db, String sql) {
+        List<Long> values = new ArrayList<>();
+        try (Cursor cursor = db.query(sql)) {
+            while (cursor.moveToNext()) values.add(cursor.getLong(0));
+        }
+        return values;
+    }
+
+    private static long[] statsOf(SupportSQLiteDatabase db, int playlistId) {
+        try (Cursor cursor = db.query("SELECT songCount, totalDuration FROM playlists WHERE playlistId = ?",
+                new Object[]{playlistId})) {
+            assertTrue(cursor.moveToFirst());
+            return new long[]{cursor.getLong(0), cursor.getLong(1)};
+        }
+    }
+
+    @Test
+    public void migrateStepByStep() throws Exception {
+        createVersion1();
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 2, true,
+                AppDatabase.MIGRATION_1_2)) {
+            insertSongs(db);
+        }
+
+        // The rebuild indexes songs that were stored before the FTS table existed.
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 3, true,
+                AppDatabase.MIGRATION_2_3)) {
+            assertEquals(Arrays.asList(20L), longs(db, "SELECT docid FROM songs_fts WHERE songs_fts MATCH 'alph*'"));
+            assertEquals(Arrays.asList(10L, 20L, 30L),
+                    longs(db, "SELECT docid FROM songs_fts WHERE songs_fts MATCH 'artist' ORDER BY docid"));
+        }
+
+        // Existing playlists are numbered in the title order they used to be shown in, missing songs first.
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 4, true,
+                AppDatabase.MIGRATION_3_4)) {
+            assertEquals(Arrays.asList(99L, 20L, 10L, 30L),
+                    longs(db, "SELECT songId FROM playlist_songs WHERE playlistId = 1 ORDER BY position"));
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L),
+                    longs(db, "SELECT position FROM playlist_songs WHERE playlistId = 1 ORDER BY position"));
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 5, true,
+                AppDatabase.MIGRATION_4_5)) {
+            assertArrayEquals(new long[]{4, 6_000}, statsOf(db, 1));
+            assertArrayEquals(new long[]{0, 0}, statsOf(db, 2));
+
+            db.execSQL("INSERT INTO playlist_songs (playlistId, songId, position) VALUES (2, 10, 1)");
+            assertArrayEquals(new long[]{1, 1_000}, statsOf(db, 2));
+        }
+    }
+
+    @Test
+    public void migrateAllTheWayAndOpenWithRoom() throws Exception {
+        createVersion1();
+        helper.runMigrationsAndValidate(TEST_DB, 5, true, ALL_MIGRATIONS).close();
+
+        AppDatabase db = Room.databaseBuilder(ApplicationProvider.getApplicationContext(),
+                        AppDatabase.class, TEST_DB)
+                .addMigrations(ALL_MIGRATIONS)
+                .allowMainThreadQueries()
+                .build();
+        try {
+            // No song had a title to sort by, so the ids keep their order.
+            assertEquals(Arrays.asList(10L, 20L, 30L, 99L), db.playlistDao().getSongIdsForPlaylist(1));
+            db.playlistDao().addSongsToPlaylist(1, Arrays.asList(10L, 40L));
+            assertEquals(Arrays.asList(10L, 20L, 30L, 99L, 40L), db.playlistDao().getSongIdsForPlaylist(1));
+        } finally {
+            db.close();
+        }
+    }
+}
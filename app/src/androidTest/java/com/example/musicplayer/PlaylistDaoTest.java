@@ -0,0 +1,192 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class PlaylistDaoTest {
+
+    private AppDatabase db;
+    private PlaylistDao playlistDao;
+    private SongDao songDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .addCallback(AppDatabase.CREATE_TRIGGERS)
+                .allowMainThreadQueries()
+                .build();
+        playlistDao = db.playlistDao();
+        songDao = db.songDao();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private int newPlaylist(String name) {
+        return (int) playlistDao.insertPlaylist(new Playlist(name, System.currentTimeMillis()));
+    }
+
+    private void addSongs(long... durations) {
+        List<Song> songs = new ArrayList<>(durations.length);
+        for (int i = 0; i < durations.length; i++) {
+            long id = i + 1;
+            songs.add(new Song(id, "Song " + id, "Artist", "content://media/external/audio/media/" + id,
+                    durations[i], 0));
+        }
+        songDao.upsertSongs(songs);
+    }
+
+    // {songCount, totalDuration} as the triggers left them.
+    private long[] statsOf(int playlistId) {
+        try (Cursor cursor = db.query("SELECT songCount, totalDuration FROM playlists WHERE playlistId = ?",
+                new Object[]{playlistId})) {
+            assertTrue(cursor.moveToFirst());
+            return new long[]{cursor.getLong(0), cursor.getLong(1)};
+        }
+    }
+
+    private static List<Long> range(long from, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) ids.add(from + i);
+        return ids;
+    }
+
+    @Test
+    public void addingSongsAlreadyInThePlaylistIsIgnored() {
+        int playlistId = newPlaylist("Mix");
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(1L, 2L, 3L));
+        Double positionOfTwo = playlistDao.getPosition(playlistId, 2L);
+
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(2L, 4L, 1L));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), playlistDao.getSongIdsForPlaylist(playlistId));
+        assertEquals(positionOfTwo, playlistDao.getPosition(playlistId, 2L));
+    }
+
+    @Test
+    public void removalSpanningSeveralBindChunksDeletesEveryId() {
+        int playlistId = newPlaylist("Big");
+        int chunk = SongDao.MAX_BIND_ARGS;
+        playlistDao.addSongsToPlaylist(playlistId, range(1, 3 * chunk));
+
+        // One id past two full chunks, so the last chunk holds a single id.
+        List<Long> removed = range(1, 2 * chunk + 1);
+        playlistDao.removeSongsFromPlaylist(playlistId, removed);
+
+        List<Long> remaining = playlistDao.getSongIdsForPlaylist(playlistId);
+        assertEquals(range(2 * chunk + 2, chunk - 1), remaining);
+    }
+
+    @Test
+    public void removalOnlyTouchesTheGivenPlaylist() {
+        int first = newPlaylist("First");
+        int second = newPlaylist("Second");
+        List<Long> ids = range(1, SongDao.MAX_BIND_ARGS + 1);
+        playlistDao.addSongsToPlaylist(first, ids);
+        playlistDao.addSongsToPlaylist(second, ids);
+
+        playlistDao.removeSongsFromPlaylist(first, ids);
+
+        assertTrue(playlistDao.getSongIdsForPlaylist(first).isEmpty());
+        assertEquals(ids, playlistDao.getSongIdsForPlaylist(second));
+    }
+
+    @Test
+    public void replaceRollsBackTheClearWhenAnInsertFails() {
+        int playlistId = newPlaylist("Mix");
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(1L, 2L, 3L));
+        db.getOpenHelper().getWritableDatabase().execSQL(
+                "CREATE TRIGGER fail_on_negative_song BEFORE INSERT ON playlist_songs " +
+                        "WHEN NEW.songId < 0 BEGIN SELECT RAISE(ABORT, 'rejected'); END");
+
+        assertThrows(SQLiteException.class,
+                () -> playlistDao.replacePlaylistSongs(playlistId, Arrays.asList(7L, 8L, -1L)));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), playlistDao.getSongIdsForPlaylist(playlistId));
+    }
+
+    @Test
+    public void replaceKeepsTheNewOrder() {
+        int playlistId = newPlaylist("Mix");
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(1L, 2L, 3L));
+
+        playlistDao.replacePlaylistSongs(playlistId, Arrays.asList(3L, 9L, 1L));
+
+        assertEquals(Arrays.asList(3L, 9L, 1L), playlistDao.getSongIdsForPlaylist(playlistId));
+    }
+
+    @Test
+    public void statsFollowInsertsAndIgnoreDuplicates() {
+        addSongs(1_000, 2_000, 3_000);
+        int playlistId = newPlaylist("Mix");
+        assertArrayEquals(new long[]{0, 0}, statsOf(playlistId));
+
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(1L, 2L));
+        assertArrayEquals(new long[]{2, 3_000}, statsOf(playlistId));
+
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(2L, 3L));
+        assertArrayEquals(new long[]{3, 6_000}, statsOf(playlistId));
+    }
+
+    @Test
+    public void statsFollowDeletes() {
+        addSongs(1_000, 2_000, 3_000);
+        int playlistId = newPlaylist("Mix");
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(1L, 2L, 3L));
+
+        playlistDao.removeSongFromPlaylist(playlistId, 2L);
+        assertArrayEquals(new long[]{2, 4_000}, statsOf(playlistId));
+
+        playlistDao.removeSongsFromPlaylist(playlistId, Arrays.asList(1L, 3L, 99L));
+        assertArrayEquals(new long[]{0, 0}, statsOf(playlistId));
+    }
+
+    @Test
+    public void statsFollowReplace() {
+        addSongs(1_000, 2_000, 3_000, 4_000);
+        int playlistId = newPlaylist("Mix");
+        int other = newPlaylist("Other");
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(1L, 2L));
+        playlistDao.addSongsToPlaylist(other, Arrays.asList(1L));
+
+        playlistDao.replacePlaylistSongs(playlistId, Arrays.asList(2L, 3L, 4L));
+
+        assertArrayEquals(new long[]{3, 9_000}, statsOf(playlistId));
+        assertArrayEquals(new long[]{1, 1_000}, statsOf(other));
+    }
+
+    // Songs outside the library count towards songCount but not totalDuration until they are scanned.
+    @Test
+    public void durationFollowsLibraryChanges() {
+        addSongs(1_000, 2_000);
+        int playlistId = newPlaylist("Mix");
+        playlistDao.addSongsToPlaylist(playlistId, Arrays.asList(1L, 2L, 3L));
+        assertArrayEquals(new long[]{3, 3_000}, statsOf(playlistId));
+
+        addSongs(1_500, 2_000, 4_000);
+        assertArrayEquals(new long[]{3, 7_500}, statsOf(playlistId));
+
+        songDao.deleteSongs(Arrays.asList(2L));
+        assertArrayEquals(new long[]{3, 5_500}, statsOf(playlistId));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class RoomLibrarySnapshotStoreTest {
+
+    private static final String PREFS_NAME = "snapshot-store-test";
+
+    private AppDatabase db;
+    private SharedPreferences preferences;
+    private RoomLibrarySnapshotStore store;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .addCallback(AppDatabase.CREATE_TRIGGERS)
+                .allowMainThreadQueries()
+                .build();
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        preferences.edit().clear().commit();
+        store = new RoomLibrarySnapshotStore(db.songDao(), preferences, new StringDictionary());
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        preferences.edit().clear().commit();
+    }
+
+    @Test
+    public void nothingStoredLoadsNoSnapshot() {
+        assertNull(store.load());
+    }
+
+    @Test
+    public void emptyLibraryLoadsAsAnEmptySnapshot() {
+        store.replaceAll(new LibrarySnapshot("v1", 12, Collections.emptyList()));
+
+        LibrarySnapshot loaded = store.load();
+
+        assertNotNull(loaded);
+        assertEquals("v1", loaded.getVersion());
+        assertEquals(12, loaded.getWatermark());
+        assertTrue(loaded.getSongs().isEmpty());
+    }
+
+    @Test
+    public void deletingTheLastSongLeavesAnEmptySnapshot() {
+        List<Song> songs = new ArrayList<>();
+        songs.add(new Song(1, "One", "Artist", "content://media/external/audio/media/1", 1_000, 0));
+        store.replaceAll(new LibrarySnapshot("v1", 5, songs));
+
+        store.applyChanges(new LibrarySnapshot("v1", 9, Collections.emptyList()),
+                Collections.emptyList(), new long[]{1});
+        LibrarySnapshot loaded = store.load();
+
+        assertNotNull(loaded);
+        assertEquals(9, loaded.getWatermark());
+        assertTrue(loaded.getSongs().isEmpty());
+    }
+}
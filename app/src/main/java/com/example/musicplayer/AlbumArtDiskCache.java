@@ -0,0 +1,90 @@
+package com.example.musicplayer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Size-bounded file cache for decoded album art. Entries are written to a temp file and renamed into place,
+// so readers never see a partial image; reads bump the file's timestamp and the oldest files go first
+// when the directory grows past maxBytes.
+public class AlbumArtDiskCache {
+
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    private long size = -1;
+
+    public AlbumArtDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    // The cached file for key, or null.
+    public synchronized File get(String key) {
+        File file = new File(directory, key);
+        if (!file.isFile()) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    public synchronized void put(String key, Writer writer) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File target = new File(directory, key);
+        File temp = new File(directory, key + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            writer.writeTo(out);
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        long previous = target.length();
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            return;
+        }
+        if (size >= 0) {
+            size += target.length() - previous;
+        }
+        trimToSize();
+    }
+
+    public synchronized long size() {
+        if (size < 0) {
+            size = 0;
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    size += file.length();
+                }
+            }
+        }
+        return size;
+    }
+
+    private void trimToSize() {
+        if (size() <= maxBytes) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length && size > maxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+}
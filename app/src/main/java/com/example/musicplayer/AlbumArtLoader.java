@@ -0,0 +1,198 @@
+package com.example.musicplayer;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.provider.MediaStore;
+import android.util.LruCache;
+import android.util.Size;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Album art by albumId, decoded at the size it is shown: memory cache first, then the disk cache, then
+// MediaStore. Decoding runs on a small background pool and results are delivered on the main thread
+// unless the request was cancelled first, which is how recycled list rows drop work they no longer need.
+public class AlbumArtLoader {
+
+    public interface Target {
+        // bitmap is null when the album has no art.
+        void onArtLoaded(Bitmap bitmap);
+    }
+
+    public final class Request implements Runnable {
+        private final long albumId;
+        private final int sizePx;
+        private final String key;
+        private final Target target;
+        private volatile boolean cancelled;
+
+        Request(long albumId, int sizePx, String key, Target target) {
+            this.albumId = albumId;
+            this.sizePx = sizePx;
+            this.key = key;
+            this.target = target;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            executor.remove(this);
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            Bitmap bitmap = memoryCache.get(key);
+            if (bitmap == null && !missing.contains(key)) {
+                bitmap = load(albumId, sizePx, key);
+            }
+            Bitmap result = bitmap;
+            mainHandler.post(() -> {
+                if (!cancelled) {
+                    target.onArtLoaded(result);
+                }
+            });
+        }
+    }
+
+    private static final Uri ALBUM_ART_URI = Uri.parse("content://media/external/audio/albumart");
+    private static final String DISK_CACHE_DIR = "album_art";
+    private static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+    private static final int MAX_MEMORY_CACHE_BYTES = 32 * 1024 * 1024;
+    private static final int THREADS = 2;
+
+    private static volatile AlbumArtLoader INSTANCE;
+
+    private final ContentResolver contentResolver;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final AlbumArtDiskCache diskCache;
+    // Keys of albums known to have no art, so rows for them stop hitting MediaStore.
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor;
+
+    private AlbumArtLoader(Context context) {
+        contentResolver = context.getContentResolver();
+        int memoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_MEMORY_CACHE_BYTES);
+        memoryCache = new LruCache<String, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        diskCache = new AlbumArtDiskCache(new File(context.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_BYTES);
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "AlbumArtLoader"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static AlbumArtLoader get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AlbumArtLoader.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AlbumArtLoader(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Memory-cache hit or null; never touches disk.
+    public Bitmap getCached(long albumId, int sizePx) {
+        return memoryCache.get(keyFor(albumId, sizePx));
+    }
+
+    // Cache hits and known misses are answered synchronously and return null; otherwise the returned
+    // request can be cancelled until its result is delivered.
+    public Request load(long albumId, int sizePx, Target target) {
+        String key = keyFor(albumId, sizePx);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null || missing.contains(key)) {
+            target.onArtLoaded(cached);
+            return null;
+        }
+        Request request = new Request(albumId, sizePx, key, target);
+        executor.execute(request);
+        return request;
+    }
+
+    private Bitmap load(long albumId, int sizePx, String key) {
+        File cached = diskCache.get(key);
+        Bitmap bitmap = cached == null ? null : BitmapFactory.decodeFile(cached.getPath());
+        if (bitmap == null) {
+            bitmap = decodeFromMediaStore(albumId, sizePx);
+            if (bitmap == null) {
+                missing.add(key);
+                return null;
+            }
+            Bitmap encoded = bitmap;
+            diskCache.put(key, out -> {
+                if (!encoded.compress(Bitmap.CompressFormat.JPEG, 90, out)) {
+                    throw new IOException("Could not encode album art");
+                }
+            });
+        }
+        memoryCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    private Bitmap decodeFromMediaStore(long albumId, int sizePx) {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Uri album = ContentUris.withAppendedId(MediaStore.Audio.Albums.EXTERNAL_CONTENT_URI, albumId);
+                return contentResolver.loadThumbnail(album, new Size(sizePx, sizePx), null);
+            }
+            Uri art = ContentUris.withAppendedId(ALBUM_ART_URI, albumId);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            try (InputStream in = contentResolver.openInputStream(art)) {
+                BitmapFactory.decodeStream(in, null, options);
+            }
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight, sizePx);
+            try (InputStream in = contentResolver.openInputStream(art)) {
+                return BitmapFactory.decodeStream(in, null, options);
+            }
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    // Largest power of two that keeps both sides at or above the target, as BitmapFactory only
+    // subsamples by powers of two.
+    static int sampleSizeFor(int width, int height, int targetPx) {
+        int sampleSize = 1;
+        if (targetPx <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetPx && height / (sampleSize * 2) >= targetPx) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static String keyFor(long albumId, int sizePx) {
+        return albumId + "_" + sizePx;
+    }
+}
@@ -2,20 +2,144 @@ package com.example.musicplayer;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.List;
 
-@Database(entities = {Playlist.class, PlaylistSongCrossRef.class}, version = 1, exportSchema = false)
+@Database(entities = {Playlist.class, PlaylistSongCrossRef.class, Song.class, SongFts.class}, version = 5, exportSchema = true)
 public abstract class AppDatabase extends RoomDatabase {
     public abstract PlaylistDao playlistDao();
+    public abstract SongDao songDao();
 
     private static volatile AppDatabase INSTANCE;
 
-    static ExecutorService databaseWriteExecutor = Executors.newSingleThreadExecutor();
+    // With WAL, readers see the last commit while a write is in progress, so reads get their own pool and
+    // never queue behind writes; writes are serialized on one thread. File and ContentResolver work goes to
+    // ioExecutor so it cannot hold up either.
+    static final MeteredExecutor databaseWriteExecutor = MeteredExecutor.serial("db-write");
+    static final MeteredExecutor databaseReadExecutor = MeteredExecutor.fixed("db-read", 4);
+    static final MeteredExecutor ioExecutor = MeteredExecutor.serial("io");
+
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `songs` (" +
+                    "`id` INTEGER NOT NULL, " +
+                    "`title` TEXT COLLATE NOCASE, " +
+                    "`artist` TEXT, " +
+                    "`path` TEXT, " +
+                    "`duration` INTEGER NOT NULL, " +
+                    "`albumId` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_title` ON `songs` (`title`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_artist` ON `songs` (`artist`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_albumId` ON `songs` (`albumId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_duration` ON `songs` (`duration`)");
+        }
+    };
+
+    // Same table and sync triggers Room generates for SongFts, then one rebuild to index the existing rows.
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `songs_fts` USING FTS4(" +
+                    "`title` TEXT, `artist` TEXT, tokenize=unicode61, content=`songs`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `songs` BEGIN DELETE FROM `songs_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `songs` BEGIN DELETE FROM `songs_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `songs` BEGIN INSERT INTO `songs_fts`(`docid`, `title`, `artist`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `songs` BEGIN INSERT INTO `songs_fts`(`docid`, `title`, `artist`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`); END");
+            database.execSQL("INSERT INTO `songs_fts`(`songs_fts`) VALUES('rebuild')");
+        }
+    };
+
+    // Adds the position key to playlist_songs. Existing playlists keep the title order they were shown in,
+    // numbered through the rowids of the rebuilt table.
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `playlist_songs_new` (" +
+                    "`playlistId` INTEGER NOT NULL, " +
+                    "`songId` INTEGER NOT NULL, " +
+                    "`position` REAL NOT NULL, " +
+                    "PRIMARY KEY(`playlistId`, `songId`))");
+            database.execSQL("INSERT INTO `playlist_songs_new` (`playlistId`, `songId`, `position`) " +
+                    "SELECT psc.playlistId, psc.songId, 0 FROM playlist_songs psc " +
+                    "LEFT JOIN songs s ON s.id = psc.songId " +
+                    "ORDER BY psc.playlistId, s.title, psc.songId");
+            database.execSQL("UPDATE `playlist_songs_new` SET `position` = rowid");
+            database.execSQL("DROP TABLE `playlist_songs`");
+            database.execSQL("ALTER TABLE `playlist_songs_new` RENAME TO `playlist_songs`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_playlist_songs_playlistId_position` " +
+                    "ON `playlist_songs` (`playlistId`, `position`)");
+        }
+    };
+
+    // Keep playlists.songCount and totalDuration in step with playlist_songs and songs. totalDuration only
+    // counts songs still in the library, as the old join did; INSERT OR IGNORE and upserts that hit an
+    // existing row fire no insert trigger, so duplicates are not counted.
+    private static final String[] PLAYLIST_STATS_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS playlist_stats_after_insert AFTER INSERT ON `playlist_songs` BEGIN " +
+                    "UPDATE `playlists` SET `songCount` = `songCount` + 1, " +
+                    "`totalDuration` = `totalDuration` + IFNULL((SELECT `duration` FROM `songs` WHERE `id` = NEW.`songId`), 0) " +
+                    "WHERE `playlistId` = NEW.`playlistId`; END",
+            "CREATE TRIGGER IF NOT EXISTS playlist_stats_after_delete AFTER DELETE ON `playlist_songs` BEGIN " +
+                    "UPDATE `playlists` SET `songCount` = `songCount` - 1, " +
+                    "`totalDuration` = `totalDuration` - IFNULL((SELECT `duration` FROM `songs` WHERE `id` = OLD.`songId`), 0) " +
+                    "WHERE `playlistId` = OLD.`playlistId`; END",
+            "CREATE TRIGGER IF NOT EXISTS playlist_stats_after_song_insert AFTER INSERT ON `songs` BEGIN " +
+                    "UPDATE `playlists` SET `totalDuration` = `totalDuration` + NEW.`duration` " +
+                    "WHERE `playlistId` IN (SELECT `playlistId` FROM `playlist_songs` WHERE `songId` = NEW.`id`); END",
+            "CREATE TRIGGER IF NOT EXISTS playlist_stats_after_song_update AFTER UPDATE OF `duration` ON `songs` " +
+                    "WHEN NEW.`duration` != OLD.`duration` BEGIN " +
+                    "UPDATE `playlists` SET `totalDuration` = `totalDuration` + NEW.`duration` - OLD.`duration` " +
+                    "WHERE `playlistId` IN (SELECT `playlistId` FROM `playlist_songs` WHERE `songId` = NEW.`id`); END",
+            "CREATE TRIGGER IF NOT EXISTS playlist_stats_after_song_delete AFTER DELETE ON `songs` BEGIN " +
+                    "UPDATE `playlists` SET `totalDuration` = `totalDuration` - OLD.`duration` " +
+                    "WHERE `playlistId` IN (SELECT `playlistId` FROM `playlist_songs` WHERE `songId` = OLD.`id`); END",
+    };
+
+    static void createPlaylistStatsTriggers(SupportSQLiteDatabase database) {
+        for (String trigger : PLAYLIST_STATS_TRIGGERS) {
+            database.execSQL(trigger);
+        }
+    }
+
+    // Adds the cached stats, backfills them once with the join they replace, then installs the triggers.
+    // The songId index serves the triggers' lookups from the songs side.
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `playlists` ADD COLUMN `songCount` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `playlists` ADD COLUMN `totalDuration` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_playlist_songs_songId` ON `playlist_songs` (`songId`)");
+            database.execSQL("UPDATE `playlists` SET " +
+                    "`songCount` = (SELECT COUNT(*) FROM `playlist_songs` psc " +
+                    "WHERE psc.playlistId = playlists.playlistId), " +
+                    "`totalDuration` = IFNULL((SELECT SUM(s.duration) FROM `playlist_songs` psc " +
+                    "INNER JOIN `songs` s ON s.id = psc.songId WHERE psc.playlistId = playlists.playlistId), 0)");
+            createPlaylistStatsTriggers(database);
+        }
+    };
+
+    // Room creates tables but not custom triggers, so fresh installs add them here.
+    static final Callback CREATE_TRIGGERS = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase database) {
+            createPlaylistStatsTriggers(database);
+        }
+    };
 
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
@@ -23,10 +147,20 @@ public abstract class AppDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                                     AppDatabase.class, "music_player_db")
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
+                            .addCallback(CREATE_TRIGGERS)
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .setQueryExecutor(databaseReadExecutor)
+                            .setTransactionExecutor(databaseWriteExecutor)
                             .build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    // Queue wait per executor, for logging.
+    public static List<MeteredExecutor.Stats> getExecutorStats() {
+        return Arrays.asList(databaseWriteExecutor.getStats(), databaseReadExecutor.getStats(), ioExecutor.getStats());
+    }
 }
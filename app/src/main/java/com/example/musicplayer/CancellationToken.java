@@ -0,0 +1,83 @@
+package com.example.musicplayer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+// Cooperative cancellation for a unit of work and everything it fans out to. Cancelling a token cancels
+// its children and runs its callbacks, which is how schedulers drop queued tasks and interrupt running
+// ones; the work itself checks isCancelled() or throwIfCancelled() at safe points.
+public final class CancellationToken implements AutoCloseable {
+
+    // For callers with nothing to cancel; cancel() on it does nothing.
+    public static final CancellationToken NONE = new CancellationToken(null);
+
+    private final Set<Runnable> callbacks = new LinkedHashSet<>();
+    private volatile boolean cancelled;
+    private final Runnable detach;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    private CancellationToken(CancellationToken parent) {
+        detach = parent == null ? null : parent.onCancel(this::cancel);
+    }
+
+    // A token that is cancelled with this one, or on its own; close() it when its scope ends.
+    public CancellationToken child() {
+        return new CancellationToken(this);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    public void cancel() {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (cancelled || this == NONE) {
+                return;
+            }
+            cancelled = true;
+            pending = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : pending) {
+            callback.run();
+        }
+    }
+
+    // Runs callback once when the token is cancelled, or right away if it already is. The returned
+    // handle unregisters it, so a long-lived token does not collect callbacks of finished work.
+    public Runnable onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return () -> unregister(callback);
+            }
+        }
+        callback.run();
+        return () -> { };
+    }
+
+    private synchronized void unregister(Runnable callback) {
+        callbacks.remove(callback);
+    }
+
+    // Detaches a child from its parent; the token itself keeps its state.
+    @Override
+    public void close() {
+        if (detach != null) {
+            detach.run();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.musicplayer;
+
+public final class DurationFormatter {
+    public static final int MAX_LENGTH = 24;
+
+    private DurationFormatter() {
+    }
+
+    // Writes "m:ss" into buffer without allocating and returns the number of chars written.
+    public static int format(long durationMs, char[] buffer) {
+        long totalSeconds = Math.max(durationMs, 0) / 1000;
+        long minutes = totalSeconds / 60;
+        int seconds = (int) (totalSeconds % 60);
+
+        int length = 0;
+        if (minutes == 0) {
+            buffer[length++] = '0';
+        } else {
+            int digits = 0;
+            for (long m = minutes; m > 0; m /= 10) {
+                digits++;
+            }
+            for (int i = digits - 1; i >= 0; i--) {
+                buffer[i] = (char) ('0' + (minutes % 10));
+                minutes /= 10;
+            }
+            length = digits;
+        }
+        buffer[length++] = ':';
+        buffer[length++] = (char) ('0' + seconds / 10);
+        buffer[length++] = (char) ('0' + seconds % 10);
+        return length;
+    }
+
+    public static String format(long durationMs) {
+        char[] buffer = new char[MAX_LENGTH];
+        return new String(buffer, 0, format(durationMs, buffer));
+    }
+}
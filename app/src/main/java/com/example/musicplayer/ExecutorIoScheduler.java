@@ -0,0 +1,115 @@
+package com.example.musicplayer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// IoScheduler over a plain Executor: a bounded platform-thread pool on Android, or one virtual thread per
+// task on a Java 21 JVM for tests and benchmarks.
+public class ExecutorIoScheduler implements IoScheduler {
+
+    private final Executor executor;
+
+    public ExecutorIoScheduler(Executor executor) {
+        this.executor = executor;
+    }
+
+    public static ExecutorIoScheduler bounded(String name, int threads) {
+        return new ExecutorIoScheduler(MeteredExecutor.fixed(name, threads));
+    }
+
+    // Looked up reflectively because the app compiles for Java 11.
+    public static ExecutorIoScheduler virtualThreads() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new ExecutorIoScheduler((Executor) factory.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads need a Java 21 runtime", e);
+        }
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public <T> Future<T> submit(CancellationToken token, Callable<T> task) {
+        Task<T> future = new Task<>(token, task);
+        executor.execute(future);
+        return future;
+    }
+
+    @Override
+    public Future<?> run(CancellationToken token, Runnable task) {
+        return submit(token, Executors.callable(task));
+    }
+
+    @Override
+    public <T> List<T> invokeAll(CancellationToken token, List<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException {
+        try (CancellationToken scope = token.child()) {
+            List<Task<T>> started = new ArrayList<>(tasks.size());
+            try {
+                for (Callable<T> task : tasks) {
+                    Task<T> future = new Task<>(scope, task);
+                    started.add(future);
+                    executor.execute(future);
+                }
+                List<T> results = new ArrayList<>(tasks.size());
+                for (Task<T> future : started) {
+                    // A bounded pool may be full of callers like this one: tasks no worker has picked up yet are
+                    // run here instead of waited on, so nested fan-out cannot deadlock.
+                    future.runInline(scope);
+                    results.add(future.get());
+                }
+                return results;
+            } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                scope.cancel();
+                throw e;
+            }
+        }
+    }
+
+    private static final class Task<T> extends FutureTask<T> {
+        private final Runnable detach;
+
+        Task(CancellationToken token, Callable<T> callable) {
+            super(() -> {
+                token.throwIfCancelled();
+                return callable.call();
+            });
+            detach = token.onCancel(() -> cancel(true));
+        }
+
+        void runInline(CancellationToken scope) {
+            if (isDone()) {
+                return;
+            }
+            run();
+            // Cancelling the scope interrupts whichever thread runs the task, here the caller; the
+            // CancellationException from get() reports it instead.
+            if (scope.isCancelled()) {
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        protected void done() {
+            // Null only when the token was already cancelled during construction.
+            if (detach != null) {
+                detach.run();
+            }
+        }
+    }
+}
@@ -6,5 +6,6 @@ import java.util.List;
 
 public interface IMusicRepository {
     List<Song> loadSongs();
+    List<Song> loadCachedSongs();
     LiveData<List<Song>> getSongsInPlaylist(int playlistId);
 }
@@ -0,0 +1,20 @@
+package com.example.musicplayer;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Where repository and ViewModel I/O runs. Every task is tied to a CancellationToken: a task whose token is
+// cancelled before it starts never runs, and one that is running gets interrupted.
+public interface IoScheduler {
+
+    <T> Future<T> submit(CancellationToken token, Callable<T> task);
+
+    Future<?> run(CancellationToken token, Runnable task);
+
+    // Structured fan-out: runs every task under a child of token and returns their results in order once all
+    // have finished. The first failure, or cancelling token, cancels the tasks still queued or running.
+    <T> List<T> invokeAll(CancellationToken token, List<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException;
+}
@@ -0,0 +1,78 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+// Lists a LibraryStore directly, or a subset of its rows such as search results: rows are bound through
+// one reusable view, so scrolling allocates no Songs.
+public class LibraryAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder> {
+    private final LayoutInflater inflater;
+    private final SongAdapter.OnSongClickListener songClickListener;
+    private LibraryStore library = LibraryStore.EMPTY;
+    private LibraryStore.View row = library.newView();
+    private int[] rows;
+
+    public LibraryAdapter(Context context, SongAdapter.OnSongClickListener listener) {
+        setHasStableIds(true);
+        this.inflater = LayoutInflater.from(context);
+        this.songClickListener = listener;
+    }
+
+    public void setLibrary(LibraryStore library) {
+        setRows(library, null);
+    }
+
+    // rows == null lists the whole library in row order.
+    public void setRows(LibraryStore library, int[] rows) {
+        if (this.library != library) {
+            this.library = library;
+            this.row = library.newView();
+        }
+        this.rows = rows;
+        notifyDataSetChanged();
+    }
+
+    public long getSongIdAt(int position) {
+        return library.getId(rowAt(position));
+    }
+
+    private int rowAt(int position) {
+        return rows == null ? position : rows[position];
+    }
+
+    public LibraryStore getLibrary() {
+        return library;
+    }
+
+    @NonNull
+    @Override
+    public SongAdapter.SongViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = inflater.inflate(R.layout.item_song, parent, false);
+        return new SongAdapter.SongViewHolder(view, songClickListener);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SongAdapter.SongViewHolder holder, int position) {
+        holder.bind(row.moveTo(rowAt(position)));
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull SongAdapter.SongViewHolder holder) {
+        holder.unbind();
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows == null ? library.size() : rows.length;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getSongIdAt(position);
+    }
+}
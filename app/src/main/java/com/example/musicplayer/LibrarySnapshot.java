@@ -0,0 +1,38 @@
+package com.example.musicplayer;
+
+import java.util.Collections;
+import java.util.List;
+
+public class LibrarySnapshot {
+    private final String version;
+    private final long watermark;
+    private final List<Song> songs;
+
+    public LibrarySnapshot(String version, long watermark, List<Song> songs) {
+        this.version = version;
+        this.watermark = watermark;
+        this.songs = Collections.unmodifiableList(songs);
+    }
+
+    private LibrarySnapshot(LibrarySnapshot source, long watermark) {
+        this.version = source.version;
+        this.watermark = watermark;
+        this.songs = source.songs;
+    }
+
+    public LibrarySnapshot withWatermark(long newWatermark) {
+        return new LibrarySnapshot(this, newWatermark);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public List<Song> getSongs() {
+        return songs;
+    }
+}
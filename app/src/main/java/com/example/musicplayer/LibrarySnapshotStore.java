@@ -0,0 +1,11 @@
+package com.example.musicplayer;
+
+import java.util.List;
+
+public interface LibrarySnapshotStore {
+    LibrarySnapshot load();
+
+    void replaceAll(LibrarySnapshot snapshot);
+
+    void applyChanges(LibrarySnapshot snapshot, List<Song> upserted, long[] deletedIds);
+}
@@ -0,0 +1,37 @@
+package com.example.musicplayer;
+
+import java.util.List;
+
+public interface LibrarySource {
+    long NO_WATERMARK = -1L;
+
+    // Thrown when rows could not be read in full. Rows are not ordered by watermark, so a partial read
+    // must never be stored: the engine lets this propagate and keeps the previous snapshot.
+    class QueryException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public QueryException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    String getVersion();
+
+    // Appends every row added or modified after the watermark and returns the new watermark.
+    long queryChangedSince(long watermark, List<Song> out);
+
+    // Sources that can abandon a scan early override this; the engine discards anything read after cancel.
+    default long queryChangedSince(long watermark, List<Song> out, CancellationToken token) {
+        return queryChangedSince(watermark, out);
+    }
+
+    // Returns null when the ids could not be read, so no deletions are inferred.
+    long[] queryAllIds();
+
+    // Appends the rows with these ids that still exist, for live ids the watermark query never returned.
+    void queryByIds(long[] ids, List<Song> out);
+
+    default void queryByIds(long[] ids, List<Song> out, CancellationToken token) {
+        queryByIds(ids, out);
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.musicplayer;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Immutable column-per-field copy of the library: parallel primitive arrays plus a dictionary for artists,
+// so 50k tracks cost a few arrays instead of 50k Song objects. The content URI path is derived from the id
+// rather than stored. Rows are read through reusable Views or materialized on demand with getSong().
+// Artists and albums are both dictionary-encoded into dense codes, which double as group keys.
+public class LibraryStore {
+
+    public static final LibraryStore EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final long[] ids;
+    private final String[] titles;
+    private final int[] artistCodes;
+    private final int[] durations;
+    private final int[] albumCodes;
+    private final long[] albumIdsByCode;
+    private final StringDictionary artists;
+    private final int artistCount;
+    private final LongIntMap rowsById;
+    private volatile Groups rowsByArtist;
+    private volatile Groups rowsByAlbum;
+
+    private LibraryStore(Builder builder) {
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        titles = Arrays.copyOf(builder.titles, size);
+        artistCodes = Arrays.copyOf(builder.artistCodes, size);
+        durations = Arrays.copyOf(builder.durations, size);
+        albumCodes = Arrays.copyOf(builder.albumCodes, size);
+        albumIdsByCode = Arrays.copyOf(builder.albumIdsByCode, builder.albumCount);
+        artists = builder.artists;
+        artistCount = artists.size();
+        rowsById = new LongIntMap(size);
+        for (int row = 0; row < size; row++) {
+            rowsById.put(ids[row], row);
+        }
+    }
+
+    public static LibraryStore fromSongs(List<Song> songs) {
+        return fromSongs(songs, new StringDictionary(Math.max(16, songs.size() / 16)));
+    }
+
+    // Artist codes come from the given dictionary, so stores built from one loader share strings and codes.
+    public static LibraryStore fromSongs(List<Song> songs, StringDictionary artists) {
+        Builder builder = new Builder(songs.size(), artists);
+        for (int i = 0; i < songs.size(); i++) {
+            builder.add(songs.get(i));
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long id) {
+        return rowsById.get(id) != LongIntMap.NO_VALUE;
+    }
+
+    // Row of the song with this id, or -1.
+    public int rowOf(long id) {
+        return rowsById.get(id);
+    }
+
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    // Copy of every id in row order, e.g. to queue the whole library.
+    public long[] getIds() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    public String getTitle(int row) {
+        return titles[row];
+    }
+
+    public int getArtistCode(int row) {
+        return artistCodes[row];
+    }
+
+    public String getArtist(int row) {
+        return artists.decode(artistCodes[row]);
+    }
+
+    public long getDuration(int row) {
+        return durations[row];
+    }
+
+    public int getAlbumCode(int row) {
+        return albumCodes[row];
+    }
+
+    public long getAlbumId(int row) {
+        return albumIdsByCode[albumCodes[row]];
+    }
+
+    public StringDictionary getArtists() {
+        return artists;
+    }
+
+    // Artist codes run from 0 (no artist) to getArtistCount() - 1; a shared dictionary may hand out
+    // codes that no row here uses.
+    public int getArtistCount() {
+        return artistCount;
+    }
+
+    // Code of an artist name for filtering, or -1 if no row can have it.
+    public int artistCodeOf(String artist) {
+        int code = artists.lookup(artist);
+        return code < artistCount ? code : -1;
+    }
+
+    public int getAlbumCount() {
+        return albumIdsByCode.length;
+    }
+
+    public long getAlbumIdForCode(int albumCode) {
+        return albumIdsByCode[albumCode];
+    }
+
+    // Rows by the given artist, in row order.
+    public int[] getRowsForArtist(int artistCode) {
+        Groups groups = rowsByArtist;
+        if (groups == null) {
+            groups = new Groups(artistCodes, artistCount);
+            rowsByArtist = groups;
+        }
+        return groups.rowsOf(artistCode);
+    }
+
+    // Rows on the given album, in row order.
+    public int[] getRowsForAlbum(int albumCode) {
+        Groups groups = rowsByAlbum;
+        if (groups == null) {
+            groups = new Groups(albumCodes, albumIdsByCode.length);
+            rowsByAlbum = groups;
+        }
+        return groups.rowsOf(albumCode);
+    }
+
+    public Song getSong(int row) {
+        return new Song(ids[row], titles[row], getArtist(row), Song.contentPathFor(ids[row]), durations[row],
+                getAlbumId(row));
+    }
+
+    public View newView() {
+        return new View();
+    }
+
+    // Flyweight over one row at a time; moveTo() repoints it without allocating.
+    public class View implements SongRow {
+        private int row = -1;
+
+        public View moveTo(int row) {
+            this.row = row;
+            return this;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public LibraryStore getStore() {
+            return LibraryStore.this;
+        }
+
+        public Song toSong() {
+            return getSong(row);
+        }
+
+        @Override public long getId() { return ids[row]; }
+        @Override public String getTitle() { return titles[row]; }
+        @Override public String getArtist() { return artists.decode(artistCodes[row]); }
+        @Override public long getDuration() { return durations[row]; }
+        @Override public long getAlbumId() { return albumIdsByCode[albumCodes[row]]; }
+    }
+
+    // Rows bucketed by code with one counting sort: rows of code c are rows[offsets[c]..offsets[c + 1]).
+    // Built on first use; a racing duplicate build is harmless since the result is the same.
+    private static final class Groups {
+        private final int[] offsets;
+        private final int[] rows;
+
+        Groups(int[] codes, int codeCount) {
+            offsets = new int[codeCount + 1];
+            for (int code : codes) {
+                offsets[code + 1]++;
+            }
+            for (int code = 0; code < codeCount; code++) {
+                offsets[code + 1] += offsets[code];
+            }
+            rows = new int[codes.length];
+            int[] next = Arrays.copyOf(offsets, codeCount);
+            for (int row = 0; row < codes.length; row++) {
+                rows[next[codes[row]]++] = row;
+            }
+        }
+
+        int[] rowsOf(int code) {
+            if (code < 0 || code >= offsets.length - 1) {
+                return new int[0];
+            }
+            return Arrays.copyOfRange(rows, offsets[code], offsets[code + 1]);
+        }
+    }
+
+    public static class Builder {
+        private long[] ids;
+        private String[] titles;
+        private int[] artistCodes;
+        private int[] durations;
+        private int[] albumCodes;
+        private long[] albumIdsByCode;
+        private final LongIntMap albumCodesById;
+        private final StringDictionary artists;
+        private int size;
+        private int albumCount;
+
+        public Builder(int expectedSize) {
+            this(expectedSize, new StringDictionary(Math.max(16, expectedSize / 16)));
+        }
+
+        public Builder(int expectedSize, StringDictionary artists) {
+            int capacity = Math.max(expectedSize, 1);
+            ids = new long[capacity];
+            titles = new String[capacity];
+            artistCodes = new int[capacity];
+            durations = new int[capacity];
+            albumCodes = new int[capacity];
+            albumIdsByCode = new long[Math.max(16, expectedSize / 8)];
+            albumCodesById = new LongIntMap(albumIdsByCode.length);
+            this.artists = artists;
+        }
+
+        public Builder add(long id, String title, String artist, long durationMs, long albumId) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1) + 1;
+                ids = Arrays.copyOf(ids, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                artistCodes = Arrays.copyOf(artistCodes, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                albumCodes = Arrays.copyOf(albumCodes, capacity);
+            }
+            ids[size] = id;
+            titles[size] = title;
+            artistCodes[size] = artists.encode(artist);
+            durations[size] = (int) Math.min(Math.max(durationMs, 0), Integer.MAX_VALUE);
+            albumCodes[size] = albumCodeFor(albumId);
+            size++;
+            return this;
+        }
+
+        public Builder add(Song song) {
+            return add(song.getId(), song.getTitle(), song.getArtist(), song.getDuration(), song.getAlbumId());
+        }
+
+        private int albumCodeFor(long albumId) {
+            int code = albumCodesById.get(albumId);
+            if (code == LongIntMap.NO_VALUE) {
+                if (albumCount == albumIdsByCode.length) {
+                    albumIdsByCode = Arrays.copyOf(albumIdsByCode, albumCount + (albumCount >> 1) + 1);
+                }
+                code = albumCount++;
+                albumIdsByCode[code] = albumId;
+                albumCodesById.put(albumId, code);
+            }
+            return code;
+        }
+
+        public LibraryStore build() {
+            return new LibraryStore(this);
+        }
+    }
+}
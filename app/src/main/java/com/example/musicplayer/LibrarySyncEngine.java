@@ -0,0 +1,158 @@
+package com.example.musicplayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class LibrarySyncEngine {
+    static final Comparator<Song> TITLE_ORDER = (a, b) -> {
+        String left = a.getTitle() == null ? "" : a.getTitle();
+        String right = b.getTitle() == null ? "" : b.getTitle();
+        int result = left.compareToIgnoreCase(right);
+        return result != 0 ? result : Long.compare(a.getId(), b.getId());
+    };
+
+    private final LibrarySource source;
+    private final LibrarySnapshotStore store;
+
+    private LibrarySnapshot snapshot;
+    private boolean snapshotLoaded = false;
+
+    public LibrarySyncEngine(LibrarySource source, LibrarySnapshotStore store) {
+        this.source = source;
+        this.store = store;
+    }
+
+    public synchronized List<Song> getCachedSongs() {
+        LibrarySnapshot current = loadSnapshot();
+        return current == null ? Collections.emptyList() : current.getSongs();
+    }
+
+    // Returns the same list instance as getCachedSongs() when nothing changed since the last sync.
+    public List<Song> sync() {
+        return sync(CancellationToken.NONE);
+    }
+
+    // A cancelled sync throws CancellationException at the next step and stores nothing, so a scan cut
+    // short never becomes the snapshot or moves the watermark. A failing source throws
+    // LibrarySource.QueryException with the same guarantee.
+    public synchronized List<Song> sync(CancellationToken token) {
+        LibrarySnapshot current = loadSnapshot();
+        token.throwIfCancelled();
+        String version = source.getVersion();
+
+        if (current == null || !Objects.equals(version, current.getVersion())) {
+            List<Song> songs = new ArrayList<>();
+            long watermark = source.queryChangedSince(LibrarySource.NO_WATERMARK, songs, token);
+            token.throwIfCancelled();
+            Collections.sort(songs, TITLE_ORDER);
+            snapshot = new LibrarySnapshot(version, watermark, songs);
+            store.replaceAll(snapshot);
+            return snapshot.getSongs();
+        }
+
+        List<Song> changed = new ArrayList<>();
+        long watermark = source.queryChangedSince(current.getWatermark(), changed, token);
+        token.throwIfCancelled();
+        long[] liveIds = source.queryAllIds();
+        token.throwIfCancelled();
+
+        Map<Long, Song> byId = new HashMap<>(current.getSongs().size() * 2);
+        for (Song song : current.getSongs()) {
+            byId.put(song.getId(), song);
+        }
+
+        List<Song> upserted = new ArrayList<>();
+        for (Song song : changed) {
+            Song previous = byId.put(song.getId(), song);
+            if (previous == null || !sameContent(previous, song)) {
+                upserted.add(song);
+            } else {
+                byId.put(previous.getId(), previous);
+            }
+        }
+
+        // Live ids the snapshot has never seen: a row that arrived with an old DATE_MODIFIED, or one the
+        // watermark skipped. They are fetched by id rather than trusted to the next delta.
+        long[] unknownIds = liveIds == null ? new long[0] : findUnknown(byId, liveIds);
+        if (unknownIds.length > 0) {
+            List<Song> found = new ArrayList<>(unknownIds.length);
+            source.queryByIds(unknownIds, found, token);
+            token.throwIfCancelled();
+            for (Song song : found) {
+                if (byId.put(song.getId(), song) == null) {
+                    upserted.add(song);
+                }
+            }
+        }
+
+        long[] deletedIds = liveIds == null ? new long[0] : findDeleted(byId, liveIds);
+        for (long id : deletedIds) {
+            byId.remove(id);
+        }
+
+        if (upserted.isEmpty() && deletedIds.length == 0) {
+            if (watermark != current.getWatermark()) {
+                snapshot = current.withWatermark(watermark);
+                store.applyChanges(snapshot, upserted, deletedIds);
+            }
+            return snapshot.getSongs();
+        }
+
+        List<Song> merged = new ArrayList<>(byId.values());
+        Collections.sort(merged, TITLE_ORDER);
+        snapshot = new LibrarySnapshot(version, watermark, merged);
+        store.applyChanges(snapshot, upserted, deletedIds);
+        return snapshot.getSongs();
+    }
+
+    private LibrarySnapshot loadSnapshot() {
+        if (!snapshotLoaded) {
+            snapshot = store.load();
+            snapshotLoaded = true;
+        }
+        return snapshot;
+    }
+
+    private static long[] findUnknown(Map<Long, Song> byId, long[] liveIds) {
+        long[] unknown = new long[liveIds.length];
+        int count = 0;
+        for (long id : liveIds) {
+            if (!byId.containsKey(id)) {
+                unknown[count++] = id;
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(unknown, 0, result, 0, count);
+        return result;
+    }
+
+    private static long[] findDeleted(Map<Long, Song> byId, long[] liveIds) {
+        LongIntMap live = new LongIntMap(liveIds.length);
+        for (long id : liveIds) {
+            live.put(id, 0);
+        }
+        long[] missing = new long[byId.size()];
+        int count = 0;
+        for (Long id : byId.keySet()) {
+            if (live.get(id) == LongIntMap.NO_VALUE) {
+                missing[count++] = id;
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(missing, 0, result, 0, count);
+        return result;
+    }
+
+    private static boolean sameContent(Song a, Song b) {
+        return a.getDuration() == b.getDuration()
+                && a.getAlbumId() == b.getAlbumId()
+                && Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getArtist(), b.getArtist())
+                && Objects.equals(a.getPath(), b.getPath());
+    }
+}
@@ -21,6 +21,7 @@ import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -40,7 +41,9 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
 
     private static final int PERMISSION_REQUEST_CODE = 100;
     private SongViewModel songViewModel;
-    private SongAdapter songAdapter;
+    private SongPagingAdapter songAdapter;
+    private LibraryAdapter searchAdapter;
+    private RecyclerView recyclerView;
 
     private MusicService musicService;
     private Intent playIntent;
@@ -65,9 +68,10 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
 
         songViewModel = new ViewModelProvider(this).get(SongViewModel.class);
 
-        RecyclerView recyclerView = findViewById(R.id.recyclerView_song_list);
+        recyclerView = findViewById(R.id.recyclerView_song_list);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        songAdapter = new SongAdapter(this, this);
+        songAdapter = new SongPagingAdapter(this, this);
+        searchAdapter = new LibraryAdapter(this, this);
         recyclerView.setAdapter(songAdapter);
 
         textSongTitle = findViewById(R.id.text_song_title);
@@ -102,9 +106,44 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        setupSearch(menu.findItem(R.id.action_search));
         return true;
     }
 
+    // While the search view is open the list shows ranked matches instead of the paged library.
+    private void setupSearch(MenuItem searchItem) {
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint("Songs or artists");
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                songViewModel.search(newText);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(@NonNull MenuItem item) {
+                searchAdapter.setRows(LibraryStore.EMPTY, new int[0]);
+                recyclerView.setAdapter(searchAdapter);
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(@NonNull MenuItem item) {
+                songViewModel.search("");
+                recyclerView.setAdapter(songAdapter);
+                return true;
+            }
+        });
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == R.id.action_view_playlists) {
@@ -150,9 +189,21 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
                 textTotalTime.setText(formatDuration(state.getDuration()));
             }
 
-            seekBarProgress.setProgress(state.getCurrentPosition());
-            textCurrentTime.setText(formatDuration(state.getCurrentPosition()));
+            updateProgress(state.getCurrentPosition());
+            // A restored session brings its own repeat and shuffle modes, and it finishes loading after bind.
+            if (isBound && musicService != null) {
+                updateRepeatButtonIcon(musicService.getRepeatMode());
+                updateShuffleButtonIcon(musicService.isShuffleOn());
+            }
         });
+        songViewModel.playbackPosition.observe(this, position -> {
+            if (position != null) updateProgress(position);
+        });
+    }
+
+    private void updateProgress(int position) {
+        seekBarProgress.setProgress(position);
+        textCurrentTime.setText(formatDuration(position));
     }
 
     private String formatDuration(int duration) {
@@ -188,11 +239,16 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     }
 
     private void observeViewModel() {
-        songViewModel.songList.observe(this, songs -> {
-            if (songs != null && !songs.isEmpty()) {
-                songAdapter.setSongs(songs);
+        songViewModel.pagedSongs.observe(this, pagingData ->
+                songAdapter.submitData(getLifecycle(), pagingData));
+        songViewModel.searchResults.observe(this, result ->
+                searchAdapter.setRows(result.library, result.rows));
+        songViewModel.library.observe(this, library -> {
+            if (library != null && !library.isEmpty()) {
                 if (isBound && musicService != null) {
-                    musicService.setList(songs);
+                    musicService.setLibrary(library);
+                    updateRepeatButtonIcon(musicService.getRepeatMode());
+                    updateShuffleButtonIcon(musicService.isShuffleOn());
                 }
             } else {
                 Toast.makeText(this, "No music files found.", Toast.LENGTH_LONG).show();
@@ -210,9 +266,9 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
             songViewModel.setMusicServiceCallback(musicService);
             isBound = true;
 
-            List<Song> currentSongs = songViewModel.songList.getValue();
-            if (currentSongs != null && !currentSongs.isEmpty()) {
-                musicService.setList(currentSongs);
+            LibraryStore library = songViewModel.library.getValue();
+            if (library != null && !library.isEmpty()) {
+                musicService.setLibrary(library);
             }
 
             if (musicService.getCurrentSong() == null) {
@@ -259,9 +315,14 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
 
     @Override
     public void onSongClick(int index) {
+        if (recyclerView.getAdapter() == searchAdapter) {
+            if (isBound) {
+                songViewModel.playFromLibrary(searchAdapter.getSongIdAt(index));
+            }
+            return;
+        }
         if (isBound) {
-            List<Song> currentQueue = songAdapter.getSongList();
-            songViewModel.startPlayback(currentQueue, index);
+            songViewModel.playFromLibrary(songAdapter.getSongAtPosition(index));
         } else {
             queuedSongIndex = index;
         }
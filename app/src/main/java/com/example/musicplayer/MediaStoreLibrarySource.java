@@ -0,0 +1,231 @@
+package com.example.musicplayer;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.provider.MediaStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+public class MediaStoreLibrarySource implements LibrarySource {
+    private static final Uri MEDIA_STORE_URI = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+    private static final String MUSIC_SELECTION = MediaStore.Audio.Media.IS_MUSIC + "!= 0";
+
+    private final Context context;
+    private final ContentResolver contentResolver;
+    private final StringDictionary artists;
+    private final IoScheduler ioScheduler;
+
+    // Cursors return a new String per row; artists go through the shared dictionary so every song by the
+    // same artist keeps the same instance.
+    public MediaStoreLibrarySource(Context context, StringDictionary artists, IoScheduler ioScheduler) {
+        this.context = context.getApplicationContext();
+        this.contentResolver = context.getContentResolver();
+        this.artists = artists;
+        this.ioScheduler = ioScheduler;
+    }
+
+    @Override
+    public String getVersion() {
+        return MediaStore.getVersion(context);
+    }
+
+    // Uses GENERATION_MODIFIED where available; DATE_MODIFIED only has second resolution,
+    // so rows from the watermark second are fetched again and deduplicated by the engine.
+    @Override
+    public long queryChangedSince(long watermark, List<Song> out) {
+        return queryChangedSince(watermark, out, CancellationToken.NONE);
+    }
+
+    // Cancelling token aborts the query in the provider and stops the row loop; the partial rows are left
+    // for the engine to discard. Any other failure throws, since the rows read so far are in no particular
+    // watermark order and storing their maximum would skip the unread ones for good.
+    @Override
+    public long queryChangedSince(long watermark, List<Song> out, CancellationToken token) {
+        boolean useGeneration = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+        String watermarkColumn = useGeneration
+                ? MediaStore.MediaColumns.GENERATION_MODIFIED
+                : MediaStore.MediaColumns.DATE_MODIFIED;
+
+        String[] projection = {
+                MediaStore.Audio.Media._ID,
+                MediaStore.Audio.Media.TITLE,
+                MediaStore.Audio.Media.ARTIST,
+                MediaStore.Audio.Media.DURATION,
+                MediaStore.Audio.Media.ALBUM_ID,
+                watermarkColumn
+        };
+
+        String selection = MUSIC_SELECTION;
+        String[] selectionArgs = null;
+        if (watermark != NO_WATERMARK) {
+            selection += " AND " + watermarkColumn + (useGeneration ? " > ?" : " >= ?");
+            selectionArgs = new String[]{String.valueOf(watermark)};
+        }
+
+        long newWatermark = watermark;
+        CancellationSignal signal = new CancellationSignal();
+        Runnable detach = token.onCancel(signal::cancel);
+        try (Cursor cursor = contentResolver.query(
+                MEDIA_STORE_URI,
+                projection,
+                selection,
+                selectionArgs,
+                null,
+                signal)) {
+
+            if (cursor == null) {
+                throw new QueryException("MediaStore returned no cursor", null);
+            }
+            SongColumns columns = new SongColumns(cursor);
+            int watermarkIndex = cursor.getColumnIndexOrThrow(watermarkColumn);
+            while (!token.isCancelled() && cursor.moveToNext()) {
+                out.add(columns.read(cursor));
+                newWatermark = Math.max(newWatermark, cursor.getLong(watermarkIndex));
+            }
+        } catch (OperationCanceledException e) {
+            // The engine sees the cancelled token and stores nothing.
+        } catch (QueryException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new QueryException("MediaStore scan failed", e);
+        } finally {
+            detach.run();
+        }
+
+        return newWatermark;
+    }
+
+    @Override
+    public void queryByIds(long[] ids, List<Song> out) {
+        queryByIds(ids, out, CancellationToken.NONE);
+    }
+
+    // Each chunk of ids is a separate query, so the chunks run side by side on the I/O scheduler. A failed
+    // chunk cancels the rest and nothing is appended.
+    @Override
+    public void queryByIds(long[] ids, List<Song> out, CancellationToken token) {
+        List<Callable<List<Song>>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += SongDao.MAX_BIND_ARGS) {
+            int start = from;
+            int end = Math.min(from + SongDao.MAX_BIND_ARGS, ids.length);
+            chunks.add(() -> queryChunk(ids, start, end));
+        }
+        try {
+            for (List<Song> songs : ioScheduler.invokeAll(token, chunks)) {
+                out.addAll(songs);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryException) {
+                throw (QueryException) e.getCause();
+            }
+            throw new QueryException("MediaStore id lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            token.throwIfCancelled();
+            throw new QueryException("MediaStore id lookup interrupted", e);
+        }
+    }
+
+    private List<Song> queryChunk(long[] ids, int from, int to) {
+        String[] projection = {
+                MediaStore.Audio.Media._ID,
+                MediaStore.Audio.Media.TITLE,
+                MediaStore.Audio.Media.ARTIST,
+                MediaStore.Audio.Media.DURATION,
+                MediaStore.Audio.Media.ALBUM_ID
+        };
+        StringBuilder selection = new StringBuilder(MUSIC_SELECTION).append(" AND ")
+                .append(MediaStore.Audio.Media._ID).append(" IN (");
+        String[] selectionArgs = new String[to - from];
+        for (int i = from; i < to; i++) {
+            selection.append(i == from ? "?" : ",?");
+            selectionArgs[i - from] = String.valueOf(ids[i]);
+        }
+        selection.append(')');
+
+        try (Cursor cursor = contentResolver.query(
+                MEDIA_STORE_URI,
+                projection,
+                selection.toString(),
+                selectionArgs,
+                null)) {
+            if (cursor == null) {
+                throw new QueryException("MediaStore returned no cursor", null);
+            }
+            SongColumns columns = new SongColumns(cursor);
+            List<Song> songs = new ArrayList<>(to - from);
+            while (cursor.moveToNext()) {
+                songs.add(columns.read(cursor));
+            }
+            return songs;
+        } catch (QueryException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new QueryException("MediaStore id lookup failed", e);
+        }
+    }
+
+    private final class SongColumns {
+        final int id;
+        final int title;
+        final int artist;
+        final int duration;
+        final int albumId;
+
+        SongColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+            title = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
+            artist = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
+            duration = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
+            albumId = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ID);
+        }
+
+        Song read(Cursor cursor) {
+            long songId = cursor.getLong(id);
+            Uri contentUri = Uri.withAppendedPath(MEDIA_STORE_URI, String.valueOf(songId));
+            return new Song(
+                    songId,
+                    cursor.getString(title),
+                    artists.intern(cursor.getString(artist)),
+                    contentUri.toString(),
+                    cursor.getLong(duration),
+                    cursor.getLong(albumId)
+            );
+        }
+    }
+
+    @Override
+    public long[] queryAllIds() {
+        String[] projection = {MediaStore.Audio.Media._ID};
+
+        try (Cursor cursor = contentResolver.query(
+                MEDIA_STORE_URI,
+                projection,
+                MUSIC_SELECTION,
+                null,
+                null)) {
+
+            if (cursor == null) {
+                return null;
+            }
+            long[] ids = new long[cursor.getCount()];
+            int count = 0;
+            while (cursor.moveToNext() && count < ids.length) {
+                ids[count++] = cursor.getLong(0);
+            }
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
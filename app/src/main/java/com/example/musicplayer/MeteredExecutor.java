@@ -0,0 +1,95 @@
+package com.example.musicplayer;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.LongSupplier;
+
+// Executor that records how long each task sat in the queue before a thread picked it up, so a pool that
+// is backed up behind slow work shows in its numbers rather than as unexplained UI lag.
+public class MeteredExecutor implements Executor {
+
+    public static final class Stats {
+        public final String name;
+        public final long tasks;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+        public final int queued;
+
+        Stats(String name, long tasks, long totalWaitNanos, long maxWaitNanos, int queued) {
+            this.name = name;
+            this.tasks = tasks;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.queued = queued;
+        }
+
+        public double getMeanWaitMs() {
+            return tasks == 0 ? 0 : totalWaitNanos / 1e6 / tasks;
+        }
+
+        public double getMaxWaitMs() {
+            return maxWaitNanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %d tasks, wait mean %.2f ms, max %.2f ms, %d queued",
+                    name, tasks, getMeanWaitMs(), getMaxWaitMs(), queued);
+        }
+    }
+
+    private final String name;
+    private final ThreadPoolExecutor delegate;
+    private final LongSupplier clock;
+    private final AtomicLong tasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    MeteredExecutor(String name, ThreadPoolExecutor delegate, LongSupplier clock) {
+        this.name = name;
+        this.delegate = delegate;
+        this.clock = clock;
+    }
+
+    // One thread, so tasks run in submission order and never overlap.
+    public static MeteredExecutor serial(String name) {
+        return fixed(name, 1);
+    }
+
+    public static MeteredExecutor fixed(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, name + "-" + count.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+        return new MeteredExecutor(name, pool, System::nanoTime);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long queuedAt = clock.getAsLong();
+        delegate.execute(() -> {
+            long wait = clock.getAsLong() - queuedAt;
+            tasks.incrementAndGet();
+            totalWaitNanos.addAndGet(wait);
+            maxWaitNanos.accumulate(wait);
+            task.run();
+        });
+    }
+
+    public Stats getStats() {
+        return new Stats(name, tasks.get(), totalWaitNanos.get(), maxWaitNanos.get(), delegate.getQueue().size());
+    }
+
+    public void resetStats() {
+        tasks.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.reset();
+    }
+}
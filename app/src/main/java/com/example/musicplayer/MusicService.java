@@ -6,6 +6,7 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.media.AudioAttributes;
 import android.media.AudioFocusRequest;
 import android.media.AudioManager;
@@ -25,10 +26,11 @@ import android.widget.Toast;
 import androidx.core.app.NotificationCompat;
 import androidx.media.session.MediaButtonReceiver;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class MusicService extends Service implements MediaPlayer.OnPreparedListener,
         MediaPlayer.OnErrorListener,
@@ -40,31 +42,104 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     private static final String TAG = "MusicService";
     private final IBinder musicBinder = new MusicBinder();
     private MediaPlayer mediaPlayer;
+    private MediaPlayer nextMediaPlayer;
+    private int nextSongPosn = -1;
+    private boolean nextPlayerChained = false;
+    private boolean currentPlayerPrepared = false;
+    private boolean playWhenRestored = false;
 
-    private List<Song> libraryList;
-    private List<Song> playbackQueue;
-    private int songPosn = -1;
-    private List<Song> originalPlaybackQueue;
-    private boolean isShuffleOn = false;
+    private final SessionRestorer sessionRestorer = new SessionRestorer(new SessionRestorer.Player() {
+        @Override
+        public void prepareAsync(Song song, SessionRestorer.PrepareCallback callback) {
+            releaseNextPlayer();
+            currentPlayerPrepared = false;
+            mediaPlayer.reset();
+            try {
+                mediaPlayer.setDataSource(getApplicationContext(), song.getContentUri());
+                mediaPlayer.setOnPreparedListener(mp -> callback.onPrepared());
+                mediaPlayer.prepareAsync();
+            } catch (IOException | IllegalStateException e) {
+                callback.onError(e);
+            }
+        }
+
+        @Override
+        public void seekTo(int positionMs) {
+            mediaPlayer.seekTo(positionMs);
+        }
+    });
+
+    private LibraryStore library = LibraryStore.EMPTY;
+    private final PlaybackQueue playbackQueue = new PlaybackQueue(new Random());
+    private PlaybackQueueStore queueStore;
+    private boolean queuePersisted = false;
+    private boolean restorePending = false;
+    // Set while the saved queue is read off the main thread; cleared to drop the result.
+    private boolean restoreLoading = false;
+
+    private AlbumArtLoader albumArtLoader;
+    private int albumArtSizePx;
+    private AlbumArtLoader.Request albumArtRequest;
+    private long albumArtSongId = PlaybackQueue.NO_SONG;
 
     private SongViewModel songViewModel;
+    private final PlaybackStatePublisher statePublisher = new PlaybackStatePublisher(new PlaybackStatePublisher.Sink() {
+        @Override
+        public void onStateChanged(PlaybackState state) {
+            if (songViewModel != null) songViewModel.updatePlaybackState(state);
+        }
+
+        @Override
+        public void onPositionChanged(int currentPosition) {
+            if (songViewModel != null) songViewModel.updatePlaybackPosition(currentPosition);
+        }
+    });
     private Handler handler = new Handler(Looper.getMainLooper());
     private final int UPDATE_FREQUENCY = 1000;
+    // Notification updates are coalesced to one per frame.
+    private static final long NOTIFICATION_FRAME_MS = 16;
+    private NotificationCompat.Builder notificationBuilder;
+    private NotificationCompat.Action playAction;
+    private NotificationCompat.Action pauseAction;
+    private NotificationCompat.Action previousAction;
+    private NotificationCompat.Action nextAction;
+    private final PlaybackNotificationController notificationController = new PlaybackNotificationController(
+            new PlaybackNotificationController.Sink() {
+                @Override
+                public void showNotification(long songId, String title, String artist, Bitmap art, boolean playing,
+                                             boolean startForeground) {
+                    MusicService.this.showNotification(title, artist, art, playing, startForeground);
+                }
+
+                @Override
+                public void updateMetadata(long songId, String title, String artist, long durationMs, Bitmap art) {
+                    updateMediaSessionMetadata(title, artist, durationMs, art);
+                }
+            },
+            frame -> handler.postDelayed(frame, NOTIFICATION_FRAME_MS));
     private NotificationManager notificationManager;
     private AudioManager audioManager;
     private AudioManager.OnAudioFocusChangeListener audioFocusChangeListener;
     private AudioFocusRequest audioFocusRequest;
     private boolean wasPlayingWhenFocusLost = false;
+    // Lowered while another app holds transient focus that allows ducking; every player, including the
+    // chained next one, plays at this volume.
+    private float volume = 1.0f;
 
     private static final int NOTIFY_ID = 1;
     private static final String CHANNEL_ID = "music_playback_channel";
     private static final String PREFS_NAME = "MusicPlayerPrefs";
     private static final String KEY_SONG_INDEX = "CurrentSongIndex";
     private static final String KEY_SONG_POSITION = "CurrentSongPosition";
-    public static final int REPEAT_MODE_ONE = 1;
-    public static final int REPEAT_MODE_ALL = 2;
+    private static final String QUEUE_DIR = "playback_queue";
+    public static final int REPEAT_MODE_ONE = PlaybackOrder.REPEAT_MODE_ONE;
+    public static final int REPEAT_MODE_ALL = PlaybackOrder.REPEAT_MODE_ALL;
 
-    private int repeatMode = REPEAT_MODE_ALL;
+    private static final long SESSION_ACTIONS = PlaybackStateCompat.ACTION_PLAY | PlaybackStateCompat.ACTION_PAUSE |
+            PlaybackStateCompat.ACTION_SKIP_TO_NEXT | PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS |
+            PlaybackStateCompat.ACTION_STOP | PlaybackStateCompat.ACTION_SEEK_TO;
+    private final PlaybackStateCompat.Builder sessionStateBuilder =
+            new PlaybackStateCompat.Builder().setActions(SESSION_ACTIONS);
 
 
     @Override
@@ -74,6 +149,9 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
         mediaPlayer.setOnCompletionListener(this);
         mediaPlayer.setOnErrorListener(this);
         mediaPlayer.setOnPreparedListener(this);
+        queueStore = new PlaybackQueueStore(new File(getFilesDir(), QUEUE_DIR), AppDatabase.ioExecutor);
+        albumArtLoader = AlbumArtLoader.get(this);
+        albumArtSizePx = getResources().getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
 
         notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         createNotificationChannel();
@@ -85,6 +163,7 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
         mediaSession.setCallback(new MediaSessionCallback());
         mediaSession.setActive(true);
         transportControls = mediaSession.getController().getTransportControls();
+        createNotificationBuilder();
 
         audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
         audioFocusChangeListener = this::handleAudioFocusChange;
@@ -104,13 +183,17 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     public void onDestroy() {
         super.onDestroy();
         savePlaybackState();
+        releaseNextPlayer();
         if (mediaPlayer != null) mediaPlayer.release();
         if (mediaSession != null) {
             mediaSession.setActive(false);
             mediaSession.release();
         }
         abandonAudioFocus();
+        cancelAlbumArt();
+        notificationController.reset();
         handler.removeCallbacks(updatePositionTask);
+        restoreLoading = false;
     }
 
     public class MusicBinder extends Binder {
@@ -120,28 +203,28 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     }
     @Override
     public void onPlaylistLoadRequest(List<Long> songIds) {
-        if (libraryList == null || libraryList.isEmpty()) {
+        LibraryStore store = library;
+        if (store.isEmpty()) {
             return;
         }
 
-        List<Song> playlistQueue = new ArrayList<>();
-        for (Long songId : songIds) {
-            for (Song song : libraryList) {
-                if (song.getId() == songId) {
-                    playlistQueue.add(song);
-                    break;
-                }
+        long[] playlistQueue = new long[songIds.size()];
+        int count = 0;
+        for (int i = 0; i < playlistQueue.length; i++) {
+            long id = songIds.get(i);
+            if (store.contains(id)) {
+                playlistQueue[count++] = id;
             }
         }
 
-        if (playlistQueue.isEmpty()) {
+        if (count == 0) {
             new Handler(Looper.getMainLooper()).post(() ->
                 Toast.makeText(this, "Playlist is empty!", Toast.LENGTH_SHORT).show()
             );
             return;
         }
 
-        setPlaybackQueue(playlistQueue);
+        setPlaybackQueue(Arrays.copyOf(playlistQueue, count));
 
         playSong(0);
 
@@ -151,71 +234,125 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     }
 
     @Override
-    public void onPlaybackRequest(List<String> songPaths, int startIndex) {
-
-        if (libraryList == null || libraryList.isEmpty()) {
+    public void onPlaybackRequest(long[] songIds, int startIndex) {
+        LibraryStore store = library;
+        if (store.isEmpty()) {
             return;
         }
 
-        List<Song> newPlaybackQueue = new ArrayList<>();
-        for (String path : songPaths) {
-            for (Song song : libraryList) {
-                if (song.getPath().equals(path)) {
-                    newPlaybackQueue.add(song);
-                    break;
-                }
+        // Ids no longer in the library are dropped; the start index follows its song.
+        long[] newPlaybackQueue = new long[songIds.length];
+        int count = 0;
+        int startPosition = 0;
+        for (int i = 0; i < songIds.length; i++) {
+            if (store.contains(songIds[i])) {
+                if (i == startIndex) startPosition = count;
+                newPlaybackQueue[count++] = songIds[i];
             }
         }
 
-        if (newPlaybackQueue.isEmpty()) {
+        if (count == 0) {
             return;
         }
 
-        setPlaybackQueue(newPlaybackQueue);
+        setPlaybackQueue(count == songIds.length ? newPlaybackQueue : Arrays.copyOf(newPlaybackQueue, count));
+        playSong(startPosition);
+    }
 
-        if (startIndex >= 0 && startIndex < newPlaybackQueue.size()) {
-            playSong(startIndex);
-        } else {
-            playSong(0);
-        }
+    public void setPlaybackQueue(long[] songIds) {
+        playbackQueue.setQueue(songIds, 0);
+        this.queuePersisted = false;
+    }
+
+    // Queue entries are ids; songs that have left the library have no row (-1).
+    private int rowAt(int position) {
+        return library.rowOf(playbackQueue.getIdAt(position));
     }
 
-    public void setPlaybackQueue(List<Song> newQueue) {
-        this.playbackQueue = new ArrayList<>(newQueue);
-        this.songPosn = 0;
+    private int currentRow() {
+        return playbackQueue.hasCurrent() ? library.rowOf(playbackQueue.getCurrentId()) : -1;
+    }
+
+    public void playNext(Song song) {
+        playbackQueue.playNext(song.getId());
+        onQueueEdited();
+    }
+
+    public void addToQueue(Song song) {
+        playbackQueue.add(song.getId());
+        onQueueEdited();
+    }
 
-        this.isShuffleOn = false;
-        this.originalPlaybackQueue = null;
+    public void moveInQueue(int from, int to) {
+        playbackQueue.move(from, to);
+        onQueueEdited();
     }
 
-    public void setList(List<Song> theSongs){
-        this.libraryList = theSongs;
-        if (this.playbackQueue == null || this.playbackQueue.isEmpty()) {
-            this.playbackQueue = theSongs;
+    public void removeFromQueue(int position) {
+        boolean wasCurrent = position == playbackQueue.getPosition();
+        playbackQueue.remove(position);
+        if (wasCurrent && currentPlayerPrepared) {
+            if (playbackQueue.hasCurrent()) {
+                playSong(playbackQueue.getPosition());
+            } else {
+                stopPlayback();
+                pushPlaybackStateUpdate();
+            }
         }
+        onQueueEdited();
     }
 
+    // Edits can change what plays next, so the gapless look-ahead is rebuilt along with the saved queue.
+    private void onQueueEdited() {
+        persistQueue();
+        savePlaybackState();
+        prepareNextPlayer();
+    }
+
+    public void setLibrary(LibraryStore store) {
+        this.library = store;
+        if (playbackQueue.isEmpty()) {
+            playbackQueue.setQueue(store.getIds(), -1);
+            this.queuePersisted = false;
+        }
+        if (restorePending) {
+            loadPlaybackState();
+        }
+    }
+
+    // songIndex is a position in play order, which differs from the queue index while shuffled.
     public void playSong(int songIndex) {
-        songPosn = songIndex;
-        if (playbackQueue == null || songPosn < 0 || songPosn >= playbackQueue.size()) {
+        sessionRestorer.cancel();
+        if (songIndex < 0 || songIndex >= playbackQueue.size()) {
             return;
         }
+        long songId = playbackQueue.getIdAt(songIndex);
+        if (!library.contains(songId)) {
+            return;
+        }
+        playbackQueue.setPosition(songIndex);
+        if (!queuePersisted) {
+            persistQueue();
+        }
+        queueStore.saveCursor(songIndex, 0, playbackQueue.getRepeatMode());
 
-        Song playSong = playbackQueue.get(songPosn);
-
+        releaseNextPlayer();
+        currentPlayerPrepared = false;
         mediaPlayer.reset();
 
         try {
-            mediaPlayer.setDataSource(getApplicationContext(), playSong.getContentUri());
+            mediaPlayer.setDataSource(getApplicationContext(), Song.contentUriFor(songId));
 
             if (requestAudioFocus()) {
                 mediaPlayer.prepareAsync();
 
                 mediaPlayer.setOnPreparedListener(mp -> {
+                    currentPlayerPrepared = true;
                     mp.start();
                     startMusicForeground();
                     pushPlaybackStateUpdate();
-                    handler.post(updatePositionTask);
+                    startPositionUpdates();
+                    prepareNextPlayer();
                 });
             }
         }catch (IOException e) {
@@ -224,11 +361,11 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     }
 
     public void nextSong() {
-        songPosn++;
-        if (songPosn >= playbackQueue.size()) {
-            songPosn = 0;
+        if (nextPlayerChained && nextSongPosn == playbackQueue.peekNext(true)) {
+            switchToNextPlayer(true);
+            return;
         }
-        playSong(songPosn);
+        playSong(playbackQueue.peekNext(true));
     }
 
     public void prevSong() {
@@ -236,17 +373,14 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
         if (mediaPlayer != null && mediaPlayer.getCurrentPosition() > RESTART_THRESHOLD_MS) {
             seekTo(0);
         } else {
-            songPosn--;
-            if (songPosn < 0) {
-                songPosn = playbackQueue.size() - 1;
-            }
-            playSong(songPosn);
+            playSong(playbackQueue.peekPrevious());
         }
     }
 
     public void pause() {
         if (mediaPlayer != null && mediaPlayer.isPlaying()) {
             mediaPlayer.pause();
+            savePlaybackState();
             startMusicForeground();
             pushPlaybackStateUpdate();
             handler.removeCallbacks(updatePositionTask);
@@ -254,80 +388,78 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     }
 
     public void resume() {
+        if (sessionRestorer.isRestoring()) {
+            playWhenRestored = true;
+            return;
+        }
         if (mediaPlayer != null && !mediaPlayer.isPlaying()) {
             if (requestAudioFocus()) {
                 mediaPlayer.start();
                 startMusicForeground();
                 pushPlaybackStateUpdate();
-                handler.post(updatePositionTask);
+                startPositionUpdates();
             }
         }
     }
     public Song getCurrentSong() {
-        if (playbackQueue != null && songPosn >= 0 && songPosn < playbackQueue.size()) {
-            return playbackQueue.get(songPosn);
-        }
-        return null;
+        LibraryStore store = library;
+        int row = currentRow();
+        return row < 0 ? null : store.getSong(row);
     }
 
     public int getPosition() { return mediaPlayer.getCurrentPosition(); }
     public int getDuration() { return mediaPlayer.getDuration(); }
     public boolean isPlaying() { return mediaPlayer.isPlaying(); }
-    public int getRepeatMode() { return repeatMode; }
+    public int getRepeatMode() { return playbackQueue.getRepeatMode(); }
 
     public void seekTo(int pos) {
-        if (mediaPlayer != null) {
+        if (mediaPlayer != null && !sessionRestorer.isRestoring()) {
             mediaPlayer.seekTo(pos);
             startMusicForeground();
-            pushPlaybackStateUpdate();
+            if (!pushPlaybackStateUpdate() && songViewModel != null) {
+                updateMediaSessionState();
+            }
         }
     }
 
     public void stopPlayback() {
+        sessionRestorer.cancel();
         if (mediaPlayer != null) {
+            releaseNextPlayer();
+            currentPlayerPrepared = false;
             mediaPlayer.stop();
             mediaPlayer.reset();
             abandonAudioFocus();
             stopForeground(true);
+            notificationController.reset();
         }
+        cancelAlbumArt();
     }
 
     public void syncCurrentState() {
+        statePublisher.reset();
         pushPlaybackStateUpdate();
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) { handler.post(updatePositionTask); }
+        if (mediaPlayer != null && mediaPlayer.isPlaying()) { startPositionUpdates(); }
     }
 
     public int cycleRepeatMode() {
-        repeatMode = (repeatMode + 1) % 3;
+        int repeatMode = playbackQueue.cycleRepeatMode();
+        savePlaybackState();
+        prepareNextPlayer();
         return repeatMode;
     }
 
     public boolean isShuffleOn() {
-        return isShuffleOn;
+        return playbackQueue.isShuffleOn();
     }
 
     public void toggleShuffle() {
-        if (playbackQueue == null || playbackQueue.isEmpty()) {
-            isShuffleOn = false;
-            return;
-        }
-        isShuffleOn = !isShuffleOn;
-        if (isShuffleOn) {
-            originalPlaybackQueue = new ArrayList<>(playbackQueue);
-            Song currentSong = playbackQueue.get(songPosn);
-            playbackQueue.remove(songPosn);
-            Collections.shuffle(playbackQueue);
-            playbackQueue.add(0, currentSong);
-            songPosn = 0;
-        } else {
-            if (originalPlaybackQueue != null) {
-                Song currentSong = playbackQueue.get(songPosn);
-                playbackQueue = new ArrayList<>(originalPlaybackQueue);
-                originalPlaybackQueue = null;
-                songPosn = playbackQueue.indexOf(currentSong);
-                if (songPosn == -1) songPosn = 0;
-            }
+        playbackQueue.toggleShuffle();
+        if (queuePersisted) {
+            queueStore.saveOrder(playbackQueue.getShuffleOrder());
+            savePlaybackState();
         }
+        prepareNextPlayer();
     }
 
     @Override
@@ -336,6 +468,9 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
 
     @Override
     public boolean onError(MediaPlayer mp, int what, int extra) {
+        sessionRestorer.cancel();
+        releaseNextPlayer();
+        currentPlayerPrepared = false;
         mp.reset();
         pushPlaybackStateUpdate();
         return true;
@@ -345,22 +480,111 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     public void onCompletion(MediaPlayer mp) {
         handler.removeCallbacks(updatePositionTask);
 
+        if (mp == mediaPlayer && nextPlayerChained) {
+            switchToNextPlayer(false);
+            return;
+        }
+
         if (mediaPlayer.getCurrentPosition() > 0) {
             mp.reset();
-            if (repeatMode == REPEAT_MODE_ONE) {
-                playSong(songPosn);
-            } else if (songPosn < playbackQueue.size() - 1) {
-                nextSong();
+            int nextPosition = playbackQueue.peekNext(false);
+            if (nextPosition >= 0) {
+                playSong(nextPosition);
             } else {
-                if (repeatMode == REPEAT_MODE_ALL) {
-                    nextSong();
-                } else {
-                    stopPlayback();
-                    pushPlaybackStateUpdate();
+                stopPlayback();
+                pushPlaybackStateUpdate();
+            }
+        }
+    }
+    // Prepares the following queue entry on a second player and chains it with
+    // setNextMediaPlayer, so the framework starts it without a gap. Repeat-one loops instead.
+    private void prepareNextPlayer() {
+        releaseNextPlayer();
+        if (mediaPlayer == null || !currentPlayerPrepared) {
+            return;
+        }
+        boolean repeatOne = playbackQueue.getRepeatMode() == REPEAT_MODE_ONE;
+        mediaPlayer.setLooping(repeatOne);
+        if (repeatOne) {
+            return;
+        }
+
+        int nextPosition = playbackQueue.peekNext(false);
+        if (nextPosition < 0) {
+            return;
+        }
+
+        long nextSongId = playbackQueue.getIdAt(nextPosition);
+        if (!library.contains(nextSongId)) {
+            return;
+        }
+
+        MediaPlayer next = new MediaPlayer();
+        nextMediaPlayer = next;
+        nextSongPosn = nextPosition;
+        next.setVolume(volume, volume);
+        try {
+            next.setDataSource(getApplicationContext(), Song.contentUriFor(nextSongId));
+            next.setOnPreparedListener(mp -> {
+                if (mp != nextMediaPlayer || !currentPlayerPrepared) return;
+                try {
+                    mediaPlayer.setNextMediaPlayer(mp);
+                    nextPlayerChained = true;
+                } catch (IllegalStateException e) {
+                    releaseNextPlayer();
                 }
+            });
+            next.setOnErrorListener((mp, what, extra) -> {
+                if (mp == nextMediaPlayer) releaseNextPlayer();
+                return true;
+            });
+            next.prepareAsync();
+        } catch (IOException | IllegalStateException e) {
+            Log.w(TAG, "Could not prepare next song", e);
+            releaseNextPlayer();
+        }
+    }
+
+    private void releaseNextPlayer() {
+        if (nextPlayerChained && mediaPlayer != null) {
+            try {
+                mediaPlayer.setNextMediaPlayer(null);
+            } catch (IllegalStateException ignored) {
             }
         }
+        if (nextMediaPlayer != null) {
+            nextMediaPlayer.release();
+        }
+        nextMediaPlayer = null;
+        nextSongPosn = -1;
+        nextPlayerChained = false;
+    }
+
+    // On completion the framework has already started the chained player; a user skip starts it here.
+    private void switchToNextPlayer(boolean startNow) {
+        MediaPlayer finished = mediaPlayer;
+        mediaPlayer = nextMediaPlayer;
+        playbackQueue.setPosition(nextSongPosn);
+        queueStore.saveCursor(nextSongPosn, 0, playbackQueue.getRepeatMode());
+        nextMediaPlayer = null;
+        nextSongPosn = -1;
+        nextPlayerChained = false;
+
+        mediaPlayer.setOnCompletionListener(this);
+        mediaPlayer.setOnErrorListener(this);
+        if (startNow) {
+            finished.setNextMediaPlayer(null);
+            finished.stop();
+            mediaPlayer.start();
+        }
+        finished.release();
+
+        startMusicForeground();
+        pushPlaybackStateUpdate();
+        startPositionUpdates();
+        prepareNextPlayer();
     }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -373,76 +597,129 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     }
 
     public void startMusicForeground() {
-        Song currentSong = getCurrentSong();
-        if (currentSong == null) return;
+        LibraryStore store = library;
+        int row = currentRow();
+        if (row < 0) return;
 
+        Bitmap albumArt = albumArtLoader.getCached(store.getAlbumId(row), albumArtSizePx);
+        if (albumArt == null) {
+            requestAlbumArt(store.getId(row), store.getAlbumId(row));
+        }
+        notificationController.update(store.getId(row), store.getTitle(row), store.getArtist(row),
+                store.getDuration(row), albumArt, mediaPlayer.isPlaying());
+    }
+
+    // Intents, actions and the style never change, so they are built once and only the title, art and
+    // play/pause action are swapped in before each post.
+    private void createNotificationBuilder() {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         notificationIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-
         PendingIntent contentIntent = PendingIntent.getActivity(this, 0, notificationIntent,
                 PendingIntent.FLAG_UPDATE_CURRENT | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0));
 
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+        playAction = new NotificationCompat.Action(android.R.drawable.ic_media_play, "Play",
+                MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_PLAY));
+        pauseAction = new NotificationCompat.Action(android.R.drawable.ic_media_pause, "Pause",
+                MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_PAUSE));
+        previousAction = new NotificationCompat.Action(android.R.drawable.ic_media_previous, "Previous",
+                MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS));
+        nextAction = new NotificationCompat.Action(android.R.drawable.ic_media_next, "Next",
+                MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_SKIP_TO_NEXT));
+
+        notificationBuilder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setSmallIcon(android.R.drawable.ic_media_play)
-                .setContentTitle(currentSong.getTitle())
-                .setContentText(currentSong.getArtist())
                 .setContentIntent(contentIntent)
                 .setDeleteIntent(MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_STOP))
                 .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
                 .setStyle(new androidx.media.app.NotificationCompat.MediaStyle()
                         .setMediaSession(mediaSession.getSessionToken())
                         .setShowActionsInCompactView(0, 1, 2));
+    }
 
-        if (mediaPlayer.isPlaying()) {
-            builder.addAction(android.R.drawable.ic_media_pause, "Pause",
-                    MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_PAUSE));
+    private void showNotification(String title, String artist, Bitmap albumArt, boolean playing,
+                                  boolean startForeground) {
+        notificationBuilder
+                .setContentTitle(title)
+                .setContentText(artist)
+                .setLargeIcon(albumArt)
+                .clearActions()
+                .addAction(playing ? pauseAction : playAction)
+                .addAction(previousAction)
+                .addAction(nextAction);
+        if (startForeground) {
+            startForeground(NOTIFY_ID, notificationBuilder.build());
         } else {
-            builder.addAction(android.R.drawable.ic_media_play, "Play",
-                    MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_PLAY));
+            notificationManager.notify(NOTIFY_ID, notificationBuilder.build());
         }
-        builder.addAction(android.R.drawable.ic_media_previous, "Previous",
-                MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS));
-        builder.addAction(android.R.drawable.ic_media_next, "Next",
-                MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_SKIP_TO_NEXT));
+    }
 
-        startForeground(NOTIFY_ID, builder.build());
-        updateMediaSessionMetadata(currentSong);
+    // The notification goes up without art and is posted again once it is decoded, if the same song
+    // is still current; albums without art are only asked for once per song.
+    private void requestAlbumArt(long songId, long albumId) {
+        if (albumArtSongId == songId) {
+            return;
+        }
+        cancelAlbumArt();
+        albumArtSongId = songId;
+        albumArtRequest = albumArtLoader.load(albumId, albumArtSizePx, bitmap -> {
+            albumArtRequest = null;
+            if (bitmap != null && playbackQueue.hasCurrent() && playbackQueue.getCurrentId() == songId) {
+                startMusicForeground();
+            }
+        });
+    }
+
+    private void cancelAlbumArt() {
+        if (albumArtRequest != null) {
+            albumArtRequest.cancel();
+            albumArtRequest = null;
+        }
+        albumArtSongId = PlaybackQueue.NO_SONG;
     }
 
-    private void updateMediaSessionMetadata(Song song) {
+    private void updateMediaSessionMetadata(String title, String artist, long durationMs, Bitmap albumArt) {
         mediaSession.setMetadata(new MediaMetadataCompat.Builder()
-                .putString(MediaMetadataCompat.METADATA_KEY_TITLE, song.getTitle())
-                .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, song.getArtist())
-                .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, song.getDuration())
+                .putString(MediaMetadataCompat.METADATA_KEY_TITLE, title)
+                .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, artist)
+                .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, durationMs)
+                .putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, albumArt)
                 .build());
     }
 
-    private void pushPlaybackStateUpdate() {
-        if (songViewModel != null && getCurrentSong() != null) {
-            PlaybackState state = new PlaybackState(
+    // The session extrapolates position from state and speed, so position-only ticks skip it.
+    private boolean pushPlaybackStateUpdate() {
+        LibraryStore store = library;
+        int row = currentRow();
+        if (songViewModel != null && row >= 0 && !sessionRestorer.isRestoring()) {
+            boolean stateChanged = statePublisher.publish(
+                    store.getId(row),
                     isPlaying(),
                     getPosition(),
                     getDuration(),
-                    getCurrentSong().getTitle(),
-                    getCurrentSong().getArtist()
+                    store.getTitle(row),
+                    store.getArtist(row)
             );
-            songViewModel.updatePlaybackState(state);
-            updateMediaSessionState();
+            if (stateChanged) {
+                updateMediaSessionState();
+            }
+            return stateChanged;
         }
+        return false;
     }
 
     private void updateMediaSessionState() {
         int state = isPlaying() ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_PAUSED;
-        long actions = PlaybackStateCompat.ACTION_PLAY | PlaybackStateCompat.ACTION_PAUSE |
-                PlaybackStateCompat.ACTION_SKIP_TO_NEXT | PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS |
-                PlaybackStateCompat.ACTION_STOP | PlaybackStateCompat.ACTION_SEEK_TO;
 
-        mediaSession.setPlaybackState(new PlaybackStateCompat.Builder()
+        mediaSession.setPlaybackState(sessionStateBuilder
                 .setState(state, getPosition(), 1.0f)
-                .setActions(actions)
                 .build());
     }
 
+    private void startPositionUpdates() {
+        handler.removeCallbacks(updatePositionTask);
+        handler.post(updatePositionTask);
+    }
+
     private class MediaSessionCallback extends MediaSessionCompat.Callback {
         @Override public void onPlay() { resume(); }
         @Override public void onPause() { pause(); }
@@ -459,6 +736,9 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
     }
 
     public void setViewModel(SongViewModel viewModel) {
+        if (this.songViewModel != viewModel) {
+            statePublisher.reset();
+        }
         this.songViewModel = viewModel;
     }
 
@@ -467,7 +747,9 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
         public void run() {
             if (mediaPlayer != null && mediaPlayer.isPlaying()) {
                 pushPlaybackStateUpdate();
-                handler.postDelayed(this, UPDATE_FREQUENCY);
+                if (songViewModel != null && songViewModel.hasPlaybackObservers()) {
+                    handler.postDelayed(this, UPDATE_FREQUENCY);
+                }
             }
         }
     };
@@ -479,9 +761,9 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
                     if (wasPlayingWhenFocusLost) {
                         resume();
                     }
-                    mediaPlayer.setVolume(1.0f, 1.0f);
                     wasPlayingWhenFocusLost = false;
                 }
+                setVolume(1.0f);
                 break;
             case AudioManager.AUDIOFOCUS_LOSS:
                 if (mediaPlayer != null && mediaPlayer.isPlaying()) {
@@ -498,13 +780,21 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
                 }
                 break;
             case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK:
-                if (mediaPlayer != null) {
-                    mediaPlayer.setVolume(0.3f, 0.3f);
-                }
+                setVolume(0.3f);
                 break;
         }
     }
 
+    private void setVolume(float newVolume) {
+        volume = newVolume;
+        if (mediaPlayer != null) {
+            mediaPlayer.setVolume(volume, volume);
+        }
+        if (nextMediaPlayer != null) {
+            nextMediaPlayer.setVolume(volume, volume);
+        }
+    }
+
     private boolean requestAudioFocus() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             AudioAttributes audioAttributes = new AudioAttributes.Builder()
@@ -536,39 +826,91 @@ public class MusicService extends Service implements MediaPlayer.OnPreparedListe
         }
     }
 
+    // Ids are stored in unshuffled order; the shuffle is saved separately as a permutation of them.
+    private void persistQueue() {
+        queueStore.saveQueue(playbackQueue.getIds());
+        if (playbackQueue.isShuffleOn()) {
+            queueStore.saveOrder(playbackQueue.getShuffleOrder());
+        }
+        queuePersisted = true;
+    }
+
     private void savePlaybackState() {
-        if (playbackQueue != null && songPosn >= 0 && songPosn < playbackQueue.size()) {
-            getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
-                    .edit()
-                    .putInt(KEY_SONG_INDEX, songPosn)
-                    .putInt(KEY_SONG_POSITION, mediaPlayer.getCurrentPosition())
-                    .apply();
+        if (sessionRestorer.isRestoring() || !queuePersisted) {
+            return;
+        }
+        if (playbackQueue.hasCurrent()) {
+            int position = currentPlayerPrepared ? mediaPlayer.getCurrentPosition() : 0;
+            queueStore.saveCursor(playbackQueue.getPosition(), position, playbackQueue.getRepeatMode());
         }
     }
 
     public void loadPlaybackState() {
-        if (playbackQueue == null || playbackQueue.isEmpty()) {
+        if (library.isEmpty()) {
+            restorePending = true;
+            return;
+        }
+        restorePending = false;
+        if (currentPlayerPrepared || sessionRestorer.isRestoring() || restoreLoading) {
             return;
         }
 
-        int savedIndex = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
-                .getInt(KEY_SONG_INDEX, -1);
-        int savedPosition = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
-                .getInt(KEY_SONG_POSITION, 0);
+        // The io executor is serial, so the read also waits for any queue save still in flight.
+        restoreLoading = true;
+        AppDatabase.ioExecutor.execute(() -> {
+            PlaybackQueueStore.Snapshot snapshot = queueStore.load();
+            handler.post(() -> {
+                if (restoreLoading) {
+                    restoreLoading = false;
+                    restorePlaybackState(snapshot);
+                }
+            });
+        });
+    }
 
-        if (savedIndex >= 0 && savedIndex < playbackQueue.size()) {
-            songPosn = savedIndex;
-            Song savedSong = playbackQueue.get(songPosn);
+    private void restorePlaybackState(PlaybackQueueStore.Snapshot snapshot) {
+        // Something the user started while the files were being read wins over the saved session.
+        if (currentPlayerPrepared || sessionRestorer.isRestoring() || playbackQueue.hasCurrent()) {
+            return;
+        }
 
-            try {
-                mediaPlayer.reset();
-                mediaPlayer.setDataSource(getApplicationContext(), savedSong.getContentUri());
-                mediaPlayer.prepare();
-                mediaPlayer.seekTo(savedPosition);
-                pushPlaybackStateUpdate();
-            } catch (IOException e) {
-                e.printStackTrace();
+        int savedIndex;
+        int savedPosition;
+        PlaybackQueueStore.RestoredQueue restored = snapshot == null ? null : snapshot.resolve(library::contains);
+        if (restored != null) {
+            playbackQueue.restore(restored.ids, restored.order, -1);
+            playbackQueue.setRepeatMode(restored.repeatMode);
+            // Songs that vanished from the library shift indices, so the cleaned-up queue is written back.
+            queuePersisted = restored.ids.length == snapshot.getIds().length;
+            savedIndex = restored.index;
+            savedPosition = restored.positionMs;
+        } else {
+            // Pre-queue-file installs only saved an index into the library order.
+            savedIndex = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+                    .getInt(KEY_SONG_INDEX, -1);
+            savedPosition = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+                    .getInt(KEY_SONG_POSITION, 0);
+        }
+
+        int savedRow = savedIndex >= 0 && savedIndex < playbackQueue.size() ? rowAt(savedIndex) : -1;
+        if (savedRow >= 0) {
+            playbackQueue.setPosition(savedIndex);
+            Song savedSong = library.getSong(savedRow);
+            if (!queuePersisted) {
+                persistQueue();
+                queueStore.saveCursor(savedIndex, savedPosition, playbackQueue.getRepeatMode());
             }
+
+            playWhenRestored = false;
+            sessionRestorer.restore(savedSong, savedPosition, (song, position) -> {
+                currentPlayerPrepared = true;
+                pushPlaybackStateUpdate();
+                prepareNextPlayer();
+                if (playWhenRestored) {
+                    playWhenRestored = false;
+                    resume();
+                }
+            });
         }
     }
 }
@@ -0,0 +1,122 @@
+package com.example.musicplayer;
+
+import android.graphics.Bitmap;
+
+import java.util.Objects;
+
+// Decides when the playback notification and the session metadata really have to be posted again.
+// Requests can come from any thread and in bursts (seek drags, pause/resume, art arriving); each one only
+// records the latest content and schedules a single frame, and the frame posts whatever differs from what
+// is already showing. Position is not part of the notification, so a seek on its own posts nothing.
+public class PlaybackNotificationController {
+
+    public interface Sink {
+        // startForeground is true for the first post after creation or reset().
+        void showNotification(long songId, String title, String artist, Bitmap art, boolean playing,
+                              boolean startForeground);
+
+        void updateMetadata(long songId, String title, String artist, long durationMs, Bitmap art);
+    }
+
+    public interface FrameScheduler {
+        void schedule(Runnable frame);
+    }
+
+    private final Sink sink;
+    private final FrameScheduler scheduler;
+    private final Runnable frame = this::flush;
+
+    private boolean frameScheduled;
+    private boolean hasPending;
+    private long pendingSongId;
+    private String pendingTitle;
+    private String pendingArtist;
+    private long pendingDuration;
+    private Bitmap pendingArt;
+    private boolean pendingPlaying;
+
+    private boolean shown;
+    private long shownSongId;
+    private String shownTitle;
+    private String shownArtist;
+    private long shownDuration;
+    private Bitmap shownArt;
+    private boolean shownPlaying;
+
+    public PlaybackNotificationController(Sink sink, FrameScheduler scheduler) {
+        this.sink = sink;
+        this.scheduler = scheduler;
+    }
+
+    public synchronized void update(long songId, String title, String artist, long durationMs, Bitmap art,
+                                    boolean playing) {
+        pendingSongId = songId;
+        pendingTitle = title;
+        pendingArtist = artist;
+        pendingDuration = durationMs;
+        pendingArt = art;
+        pendingPlaying = playing;
+        hasPending = true;
+        if (!frameScheduled) {
+            frameScheduled = true;
+            scheduler.schedule(frame);
+        }
+    }
+
+    // Forgets what is showing, e.g. after stopForeground(), and drops an update that has not been posted yet.
+    public synchronized void reset() {
+        hasPending = false;
+        pendingArt = null;
+        shown = false;
+        shownArt = null;
+    }
+
+    void flush() {
+        long songId;
+        String title;
+        String artist;
+        long durationMs;
+        Bitmap art;
+        boolean playing;
+        boolean showNotification;
+        boolean updateMetadata;
+        boolean startForeground;
+        synchronized (this) {
+            frameScheduled = false;
+            if (!hasPending) {
+                return;
+            }
+            hasPending = false;
+            songId = pendingSongId;
+            title = pendingTitle;
+            artist = pendingArtist;
+            durationMs = pendingDuration;
+            art = pendingArt;
+            playing = pendingPlaying;
+            pendingArt = null;
+
+            boolean sameSong = shown
+                    && songId == shownSongId
+                    && art == shownArt
+                    && Objects.equals(title, shownTitle)
+                    && Objects.equals(artist, shownArtist);
+            showNotification = !sameSong || playing != shownPlaying;
+            updateMetadata = !sameSong || durationMs != shownDuration;
+            startForeground = !shown;
+
+            shown = true;
+            shownSongId = songId;
+            shownTitle = title;
+            shownArtist = artist;
+            shownDuration = durationMs;
+            shownArt = art;
+            shownPlaying = playing;
+        }
+        if (showNotification) {
+            sink.showNotification(songId, title, artist, art, playing, startForeground);
+        }
+        if (updateMetadata) {
+            sink.updateMetadata(songId, title, artist, durationMs, art);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.musicplayer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Play order over a queue's base (unshuffled) order. Positions are indices in the current play order;
+// with shuffle on they map to base indices through a permutation, otherwise they are base indices.
+// Every time shuffle is turned on a fresh permutation is drawn (reusing the arrays), and it is kept up to date
+// across edits while shuffle stays on, so next, previous and turning shuffle off are constant time.
+public class PlaybackOrder {
+
+    public static final int REPEAT_MODE_OFF = 0;
+    public static final int REPEAT_MODE_ONE = 1;
+    public static final int REPEAT_MODE_ALL = 2;
+
+    private final Random random;
+    private int[] shuffled;
+    private int[] shuffledPositions;
+    private int size;
+    private boolean shuffleOn;
+    private int position = -1;
+    private int repeatMode = REPEAT_MODE_ALL;
+
+    public PlaybackOrder(int size, Random random) {
+        this.random = random;
+        this.size = size;
+    }
+
+    // Restores a saved order; shuffleOrder is null when the queue was saved unshuffled.
+    public static PlaybackOrder restore(int size, int[] shuffleOrder, int position, Random random) {
+        PlaybackOrder order = new PlaybackOrder(size, random);
+        if (shuffleOrder != null && shuffleOrder.length == size) {
+            order.shuffled = shuffleOrder.clone();
+            order.shuffledPositions = new int[size];
+            order.rebuildPositions(0, size);
+            order.shuffleOn = true;
+        }
+        order.setPosition(position);
+        return order;
+    }
+
+    private void buildPermutation() {
+        if (shuffled == null || shuffled.length < size) {
+            shuffled = new int[size];
+            shuffledPositions = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            shuffled[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        rebuildPositions(0, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    // Out-of-range positions clear the cursor.
+    public void setPosition(int position) {
+        this.position = position >= 0 && position < size ? position : -1;
+    }
+
+    public boolean hasCurrent() {
+        return position >= 0;
+    }
+
+    public int getCurrentIndex() {
+        return position < 0 ? -1 : indexAt(position);
+    }
+
+    public int indexAt(int position) {
+        return shuffleOn ? shuffled[position] : position;
+    }
+
+    public int positionOf(int index) {
+        return shuffleOn ? shuffledPositions[index] : index;
+    }
+
+    public boolean isShuffleOn() {
+        return shuffleOn;
+    }
+
+    // Turning shuffle on draws a new order and swaps the current song to its front so nothing before it is
+    // skipped. With nothing playing the cursor stays cleared and playback starts at the front when asked.
+    public void toggleShuffle() {
+        if (size == 0) {
+            shuffleOn = false;
+            return;
+        }
+        if (shuffleOn) {
+            if (position >= 0) position = shuffled[position];
+            shuffleOn = false;
+            return;
+        }
+        buildPermutation();
+        if (position >= 0) {
+            swapShuffled(0, shuffledPositions[position]);
+            position = 0;
+        }
+        shuffleOn = true;
+    }
+
+    // Copy of the permutation for persistence, or null while shuffle is off.
+    public int[] getShuffleOrder() {
+        return shuffleOn ? Arrays.copyOf(shuffled, size) : null;
+    }
+
+    public int getRepeatMode() {
+        return repeatMode;
+    }
+
+    public void setRepeatMode(int repeatMode) {
+        if (repeatMode >= REPEAT_MODE_OFF && repeatMode <= REPEAT_MODE_ALL) {
+            this.repeatMode = repeatMode;
+        }
+    }
+
+    public int cycleRepeatMode() {
+        repeatMode = (repeatMode + 1) % 3;
+        return repeatMode;
+    }
+
+    // Position that plays after the current one, or -1 when playback should stop.
+    // A user skip leaves repeat-one and wraps around even with repeat off.
+    public int peekNext(boolean userSkip) {
+        if (size == 0) {
+            return -1;
+        }
+        if (position < 0) {
+            return 0;
+        }
+        if (repeatMode == REPEAT_MODE_ONE && !userSkip) {
+            return position;
+        }
+        if (position < size - 1) {
+            return position + 1;
+        }
+        return repeatMode == REPEAT_MODE_ALL || userSkip ? 0 : -1;
+    }
+
+    public int peekPrevious() {
+        if (size == 0) {
+            return -1;
+        }
+        return position <= 0 ? size - 1 : position - 1;
+    }
+
+    // Adds a new base entry at baseIndex that plays at the given position. While shuffle is off the two
+    // must be equal. Both arrays are updated with shifts and sequential passes rather than a scattered rebuild.
+    public void insert(int position, int baseIndex) {
+        if (shuffleOn) {
+            ensureCapacity(size + 1);
+            int slot = position;
+            if (baseIndex < size) {
+                addFrom(shuffled, size, baseIndex, 1);
+            }
+            System.arraycopy(shuffled, slot, shuffled, slot + 1, size - slot);
+            shuffled[slot] = baseIndex;
+            System.arraycopy(shuffledPositions, baseIndex, shuffledPositions, baseIndex + 1, size - baseIndex);
+            if (slot < size) {
+                addFrom(shuffledPositions, size + 1, slot, 1);
+            }
+            shuffledPositions[baseIndex] = slot;
+        }
+        size++;
+        if (this.position >= 0 && position <= this.position) {
+            this.position++;
+        }
+    }
+
+    // Returns the base index that was removed. Removing the current entry leaves the cursor on the
+    // entry that followed it, or clears it when there is none.
+    public int remove(int position) {
+        int baseIndex = indexAt(position);
+        if (shuffleOn) {
+            int slot = shuffledPositions[baseIndex];
+            System.arraycopy(shuffled, slot + 1, shuffled, slot, size - slot - 1);
+            System.arraycopy(shuffledPositions, baseIndex + 1, shuffledPositions, baseIndex, size - baseIndex - 1);
+            int remaining = size - 1;
+            if (baseIndex < remaining) {
+                addFrom(shuffled, remaining, baseIndex + 1, -1);
+            }
+            if (slot < remaining) {
+                addFrom(shuffledPositions, remaining, slot + 1, -1);
+            }
+        }
+        size--;
+        if (position < this.position) {
+            this.position--;
+        } else if (position == this.position && this.position >= size) {
+            this.position = -1;
+        }
+        return baseIndex;
+    }
+
+    // Moves the entry at one play position to another. With shuffle off this is a move in base order;
+    // with shuffle on only the permutation changes.
+    public void move(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        if (shuffleOn) {
+            shiftEntry(shuffled, from, to);
+            rebuildPositions(Math.min(from, to), Math.max(from, to) + 1);
+        }
+        if (position == from) {
+            position = to;
+        } else if (from < position && to >= position) {
+            position--;
+        } else if (from > position && to <= position && position >= 0) {
+            position++;
+        }
+    }
+
+    // Adds delta to every value >= threshold. The values are in shuffled order, so a branch here would
+    // mispredict about half the time; the comparison is folded into arithmetic instead.
+    private static void addFrom(int[] values, int count, int threshold, int delta) {
+        for (int i = 0; i < count; i++) {
+            int value = values[i];
+            values[i] = value + ((((value - threshold) >>> 31) ^ 1) * delta);
+        }
+    }
+
+    private static void shiftEntry(int[] values, int from, int to) {
+        int moved = values[from];
+        if (from < to) {
+            System.arraycopy(values, from + 1, values, from, to - from);
+        } else {
+            System.arraycopy(values, to, values, to + 1, from - to);
+        }
+        values[to] = moved;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > shuffled.length) {
+            int newCapacity = Math.max(capacity, shuffled.length + (shuffled.length >> 1) + 8);
+            shuffled = Arrays.copyOf(shuffled, newCapacity);
+            shuffledPositions = Arrays.copyOf(shuffledPositions, newCapacity);
+        }
+    }
+
+    private void rebuildPositions(int from, int to) {
+        for (int i = from; i < to; i++) {
+            shuffledPositions[shuffled[i]] = i;
+        }
+    }
+
+    private void swapShuffled(int a, int b) {
+        int swap = shuffled[a];
+        shuffled[a] = shuffled[b];
+        shuffled[b] = swap;
+        shuffledPositions[shuffled[a]] = a;
+        shuffledPositions[shuffled[b]] = b;
+    }
+}
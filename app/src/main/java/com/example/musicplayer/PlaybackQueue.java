@@ -0,0 +1,156 @@
+package com.example.musicplayer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Song ids in base (unshuffled) order plus the PlaybackOrder that walks them. Every public position is a
+// position in play order, i.e. what the user sees as the queue, whether or not shuffle is on.
+public class PlaybackQueue {
+
+    public static final long NO_SONG = -1L;
+
+    private final Random random;
+    private long[] ids = new long[0];
+    private int size;
+    private PlaybackOrder order;
+
+    public PlaybackQueue(Random random) {
+        this.random = random;
+        this.order = new PlaybackOrder(0, random);
+    }
+
+    // Replaces the queue and turns shuffle off; the repeat mode carries over.
+    public void setQueue(long[] songIds, int startPosition) {
+        restore(songIds, null, startPosition);
+    }
+
+    // shuffleOrder is null for an unshuffled queue.
+    public void restore(long[] songIds, int[] shuffleOrder, int position) {
+        int repeatMode = order.getRepeatMode();
+        ids = songIds.clone();
+        size = ids.length;
+        order = PlaybackOrder.restore(size, shuffleOrder, position, random);
+        order.setRepeatMode(repeatMode);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getIdAt(int position) {
+        return ids[order.indexAt(position)];
+    }
+
+    public long getCurrentId() {
+        return order.hasCurrent() ? ids[order.getCurrentIndex()] : NO_SONG;
+    }
+
+    public int getPosition() {
+        return order.getPosition();
+    }
+
+    public void setPosition(int position) {
+        order.setPosition(position);
+    }
+
+    public boolean hasCurrent() {
+        return order.hasCurrent();
+    }
+
+    // Base order copy for persistence; getShuffleOrder() maps play positions onto it.
+    public long[] getIds() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    public int[] getShuffleOrder() {
+        return order.getShuffleOrder();
+    }
+
+    // While shuffled, new entries join the end of the base order and take their slot only in the permutation.
+    public void insert(int position, long songId) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        int baseIndex = order.isShuffleOn() ? size : position;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(8, size + (size >> 1)));
+        }
+        System.arraycopy(ids, baseIndex, ids, baseIndex + 1, size - baseIndex);
+        ids[baseIndex] = songId;
+        size++;
+        order.insert(position, baseIndex);
+    }
+
+    public void add(long songId) {
+        insert(size, songId);
+    }
+
+    // Queues the song right after the current one, or at the front when nothing is current.
+    public int playNext(long songId) {
+        int position = order.hasCurrent() ? order.getPosition() + 1 : 0;
+        insert(position, songId);
+        return position;
+    }
+
+    public long remove(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        int baseIndex = order.remove(position);
+        long removed = ids[baseIndex];
+        System.arraycopy(ids, baseIndex + 1, ids, baseIndex, size - baseIndex - 1);
+        size--;
+        return removed;
+    }
+
+    public void move(int from, int to) {
+        if (from < 0 || from >= size || to < 0 || to >= size) {
+            throw new IndexOutOfBoundsException("move " + from + " -> " + to + ", size " + size);
+        }
+        if (from == to) {
+            return;
+        }
+        if (!order.isShuffleOn()) {
+            long moved = ids[from];
+            if (from < to) {
+                System.arraycopy(ids, from + 1, ids, from, to - from);
+            } else {
+                System.arraycopy(ids, to, ids, to + 1, from - to);
+            }
+            ids[to] = moved;
+        }
+        order.move(from, to);
+    }
+
+    public boolean isShuffleOn() {
+        return order.isShuffleOn();
+    }
+
+    public void toggleShuffle() {
+        order.toggleShuffle();
+    }
+
+    public int getRepeatMode() {
+        return order.getRepeatMode();
+    }
+
+    public void setRepeatMode(int repeatMode) {
+        order.setRepeatMode(repeatMode);
+    }
+
+    public int cycleRepeatMode() {
+        return order.cycleRepeatMode();
+    }
+
+    public int peekNext(boolean userSkip) {
+        return order.peekNext(userSkip);
+    }
+
+    public int peekPrevious() {
+        return order.peekPrevious();
+    }
+}
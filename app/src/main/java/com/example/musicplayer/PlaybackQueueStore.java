@@ -0,0 +1,280 @@
+package com.example.musicplayer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.LongPredicate;
+
+// Persists the playback queue as three small binary files so each kind of edit rewrites only its own part:
+// the queue ids in library (unshuffled) order, the shuffle permutation, and the cursor (index, position, repeat).
+// Every file carries the generation of the queue it belongs to; parts left over from an older queue are ignored.
+public class PlaybackQueueStore {
+
+    private static final int MAGIC = 0x4D505131; // "MPQ1"
+    private static final int QUEUE_HEADER_BYTES = 16;
+    private static final int ORDER_HEADER_BYTES = 16;
+    private static final int CURSOR_BYTES = 24;
+
+    static final String QUEUE_FILE = "queue.bin";
+    static final String ORDER_FILE = "order.bin";
+    static final String CURSOR_FILE = "cursor.bin";
+
+    public static class Snapshot {
+        private final long[] ids;
+        private final int[] order;
+        private final int index;
+        private final int positionMs;
+        private final int repeatMode;
+
+        Snapshot(long[] ids, int[] order, int index, int positionMs, int repeatMode) {
+            this.ids = ids;
+            this.order = order;
+            this.index = index;
+            this.positionMs = positionMs;
+            this.repeatMode = repeatMode;
+        }
+
+        public long[] getIds() { return ids; }
+        public int[] getOrder() { return order; }
+        public int getIndex() { return index; }
+        public int getPositionMs() { return positionMs; }
+        public int getRepeatMode() { return repeatMode; }
+
+        // Songs deleted from the library since the save are dropped; if the current one is gone,
+        // playback resumes at the start of the entry that followed it.
+        public RestoredQueue resolve(LongPredicate inLibrary) {
+            int count = ids.length;
+            long[] kept = new long[count];
+            int keptCount = 0;
+            int[] remap = new int[count];
+            for (int i = 0; i < count; i++) {
+                boolean present = inLibrary.test(ids[i]);
+                remap[i] = present ? keptCount : -1;
+                if (present) kept[keptCount++] = ids[i];
+            }
+            if (keptCount == 0) {
+                return null;
+            }
+
+            int restoredIndex = -1;
+            int restoredPosition = positionMs;
+            int[] restoredOrder = null;
+            if (order == null) {
+                restoredIndex = index >= 0 && index < count ? remap[index] : -1;
+                for (int i = Math.max(index, 0); restoredIndex < 0 && i < count; i++) {
+                    restoredIndex = remap[i];
+                    restoredPosition = 0;
+                }
+            } else {
+                restoredOrder = new int[keptCount];
+                int position = 0;
+                for (int i = 0; i < order.length; i++) {
+                    int mapped = remap[order[i]];
+                    if (mapped < 0) continue;
+                    if (restoredIndex < 0 && i >= index) {
+                        restoredIndex = position;
+                        if (i != index) restoredPosition = 0;
+                    }
+                    restoredOrder[position++] = mapped;
+                }
+            }
+            if (restoredIndex < 0) {
+                restoredIndex = 0;
+                restoredPosition = 0;
+            }
+            return new RestoredQueue(keptCount == count ? ids : Arrays.copyOf(kept, keptCount), restoredOrder,
+                    restoredIndex, restoredPosition, repeatMode);
+        }
+    }
+
+    // ids stay in base (unshuffled) order; order maps play positions onto them and is null when unshuffled.
+    public static class RestoredQueue {
+        public final long[] ids;
+        public final int[] order;
+        public final int index;
+        public final int positionMs;
+        public final int repeatMode;
+
+        RestoredQueue(long[] ids, int[] order, int index, int positionMs, int repeatMode) {
+            this.ids = ids;
+            this.order = order;
+            this.index = index;
+            this.positionMs = positionMs;
+            this.repeatMode = repeatMode;
+        }
+
+        public long idAt(int position) {
+            return ids[order == null ? position : order[position]];
+        }
+    }
+
+    private final File directory;
+    private final Executor writeExecutor;
+    private long generation;
+    // Latest contents per file not yet written; a null value deletes the file. Guarded by this.
+    private final Map<String, ByteBuffer> pendingWrites = new HashMap<>();
+
+    public PlaybackQueueStore(File directory, Executor writeExecutor) {
+        this.directory = directory;
+        this.writeExecutor = writeExecutor;
+    }
+
+    // Buffers are encoded on the caller's thread so later queue edits cannot race the write. The id list is
+    // rewritten whole rather than patched: an insert, removal or move shifts every id after it, so a patch
+    // is rarely smaller, and at 8 bytes a song the write costs far less than its fsync. What keeps edits
+    // cheap is that a burst of them reaching the executor before it catches up is written once.
+    public synchronized void saveQueue(long[] ids) {
+        generation = Math.max(generation + 1, System.currentTimeMillis());
+        ByteBuffer buffer = ByteBuffer.allocate(QUEUE_HEADER_BYTES + ids.length * 8);
+        buffer.putInt(MAGIC).putLong(generation).putInt(ids.length);
+        buffer.asLongBuffer().put(ids);
+        write(QUEUE_FILE, buffer);
+        saveOrderLocked(null);
+    }
+
+    public synchronized void saveOrder(int[] order) {
+        saveOrderLocked(order);
+    }
+
+    public synchronized void saveCursor(int index, int positionMs, int repeatMode) {
+        ByteBuffer buffer = ByteBuffer.allocate(CURSOR_BYTES);
+        buffer.putInt(MAGIC).putLong(generation).putInt(index).putInt(positionMs).putInt(repeatMode);
+        write(CURSOR_FILE, buffer);
+    }
+
+    public synchronized Snapshot load() {
+        ByteBuffer queue = read(QUEUE_FILE);
+        if (queue == null || queue.remaining() < QUEUE_HEADER_BYTES || queue.getInt() != MAGIC) {
+            return null;
+        }
+        long queueGeneration = queue.getLong();
+        int count = queue.getInt();
+        if (count < 0 || queue.remaining() != count * 8L) {
+            return null;
+        }
+        long[] ids = new long[count];
+        queue.asLongBuffer().get(ids);
+        generation = Math.max(generation, queueGeneration);
+
+        int[] order = null;
+        ByteBuffer orderBuffer = read(ORDER_FILE);
+        if (orderBuffer != null && orderBuffer.remaining() >= ORDER_HEADER_BYTES
+                && orderBuffer.getInt() == MAGIC && orderBuffer.getLong() == queueGeneration) {
+            int orderCount = orderBuffer.getInt();
+            if (orderCount == count && orderBuffer.remaining() == count * 4L) {
+                order = new int[count];
+                orderBuffer.asIntBuffer().get(order);
+                if (!isPermutation(order)) order = null;
+            }
+        }
+
+        int index = 0;
+        int positionMs = 0;
+        int repeatMode = -1;
+        ByteBuffer cursor = read(CURSOR_FILE);
+        if (cursor != null && cursor.remaining() == CURSOR_BYTES && cursor.getInt() == MAGIC) {
+            long cursorGeneration = cursor.getLong();
+            int savedIndex = cursor.getInt();
+            int savedPosition = cursor.getInt();
+            repeatMode = cursor.getInt();
+            if (cursorGeneration == queueGeneration && savedIndex >= 0 && savedIndex < count) {
+                index = savedIndex;
+                positionMs = Math.max(savedPosition, 0);
+            }
+        }
+        return new Snapshot(ids, order, index, positionMs, repeatMode);
+    }
+
+    private void saveOrderLocked(int[] order) {
+        if (order == null) {
+            write(ORDER_FILE, null);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(ORDER_HEADER_BYTES + order.length * 4);
+        buffer.putInt(MAGIC).putLong(generation).putInt(order.length);
+        buffer.asIntBuffer().put(order);
+        write(ORDER_FILE, buffer);
+    }
+
+    private static boolean isPermutation(int[] order) {
+        boolean[] seen = new boolean[order.length];
+        for (int value : order) {
+            if (value < 0 || value >= order.length || seen[value]) return false;
+            seen[value] = true;
+        }
+        return true;
+    }
+
+    // Only the newest contents of a file are written: a save that finds one still queued replaces its buffer
+    // instead of queueing another temp-file write and fsync.
+    private void write(String name, ByteBuffer buffer) {
+        if (buffer != null) {
+            buffer.rewind();
+        }
+        boolean queued = pendingWrites.containsKey(name);
+        pendingWrites.put(name, buffer);
+        if (!queued) {
+            writeExecutor.execute(() -> flush(name));
+        }
+    }
+
+    // Written to a temp file and renamed over the old one, so a crash never leaves a torn file behind.
+    private void flush(String name) {
+        ByteBuffer buffer;
+        synchronized (this) {
+            buffer = pendingWrites.remove(name);
+        }
+        File target = new File(directory, name);
+        if (buffer == null) {
+            target.delete();
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File temp = new File(directory, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+        }
+    }
+
+    private ByteBuffer read(String name) {
+        File file = new File(directory, name);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            return buffer;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.musicplayer;
+
+import java.util.Objects;
+
+public class PlaybackStatePublisher {
+
+    public interface Sink {
+        void onStateChanged(PlaybackState state);
+
+        void onPositionChanged(int currentPosition);
+    }
+
+    private final Sink sink;
+
+    private PlaybackState lastState;
+    private long lastSongId;
+    private int lastPosition = -1;
+
+    public PlaybackStatePublisher(Sink sink) {
+        this.sink = sink;
+    }
+
+    // Returns true when a full state was published, false for a position-only tick or no-op.
+    public boolean publish(long songId, boolean isPlaying, int currentPosition, int duration,
+                           String title, String artist) {
+        if (lastState == null
+                || songId != lastSongId
+                || isPlaying != lastState.isPlaying()
+                || duration != lastState.getDuration()
+                || !Objects.equals(title, lastState.getTitle())
+                || !Objects.equals(artist, lastState.getArtist())) {
+            lastState = new PlaybackState(isPlaying, currentPosition, duration, title, artist);
+            lastSongId = songId;
+            lastPosition = currentPosition;
+            sink.onStateChanged(lastState);
+            return true;
+        }
+        if (currentPosition != lastPosition) {
+            lastPosition = currentPosition;
+            sink.onPositionChanged(currentPosition);
+        }
+        return false;
+    }
+
+    public void reset() {
+        lastState = null;
+        lastPosition = -1;
+    }
+}
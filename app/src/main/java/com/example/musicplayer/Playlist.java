@@ -1,5 +1,6 @@
 package com.example.musicplayer;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
@@ -11,6 +12,12 @@ public class Playlist {
     public String name;
     public long createdAt;
 
+    // Kept current by the playlist_stats triggers in AppDatabase; never written from Java.
+    @ColumnInfo(defaultValue = "0")
+    public int songCount;
+    @ColumnInfo(defaultValue = "0")
+    public long totalDuration;
+
     public Playlist(String name, long createdAt) {
         this.name = name;
         this.createdAt = createdAt;
@@ -7,14 +7,14 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.PlaylistViewHolder> {
-    private List<PlaylistWithCount> playlistList = new ArrayList<>();
-
+public class PlaylistAdapter extends ListAdapter<PlaylistWithCount, PlaylistAdapter.PlaylistViewHolder> {
     private final LayoutInflater inflater;
     private OnPlaylistClickListener playlistClickListener;
 
@@ -23,7 +23,24 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         void onPlaylistLongClick(Playlist playlist);
     }
 
+    private static final DiffUtil.ItemCallback<PlaylistWithCount> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<PlaylistWithCount>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull PlaylistWithCount oldItem, @NonNull PlaylistWithCount newItem) {
+                    return oldItem.playlistId == newItem.playlistId;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull PlaylistWithCount oldItem, @NonNull PlaylistWithCount newItem) {
+                    return oldItem.songCount == newItem.songCount
+                            && oldItem.totalDuration == newItem.totalDuration
+                            && Objects.equals(oldItem.name, newItem.name);
+                }
+            };
+
     public PlaylistAdapter(Context context, OnPlaylistClickListener listener) {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
         this.inflater = LayoutInflater.from(context);
         this.playlistClickListener = listener;
     }
@@ -37,11 +54,14 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
 
     @Override
     public void onBindViewHolder(@NonNull PlaylistViewHolder holder, int position) {
-        PlaylistWithCount currentItem = playlistList.get(position);
+        PlaylistWithCount currentItem = getItem(position);
 
         holder.nameTextView.setText(currentItem.name);
 
         String countText = currentItem.songCount == 1 ? "1 song" : currentItem.songCount + " songs";
+        if (currentItem.totalDuration > 0) {
+            countText += " \u00b7 " + DurationFormatter.format(currentItem.totalDuration);
+        }
         holder.countTextView.setText(countText);
 
         holder.itemView.setOnClickListener(v -> {
@@ -66,13 +86,12 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
     }
 
     @Override
-    public int getItemCount() {
-        return playlistList.size();
+    public long getItemId(int position) {
+        return getItem(position).playlistId;
     }
 
     public void setPlaylists(List<PlaylistWithCount> playlists) {
-        this.playlistList = playlists;
-        notifyDataSetChanged();
+        submitList(playlists);
     }
 
     static class PlaylistViewHolder extends RecyclerView.ViewHolder {
@@ -6,7 +6,9 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Dao
@@ -19,28 +21,105 @@ public interface PlaylistDao {
     @Delete
     int deleteSongFromPlaylist(PlaylistSongCrossRef crossRef);
 
-    @Query("SELECT songId FROM playlist_songs WHERE playlistId = :playlistId")
+    @Query("SELECT songId FROM playlist_songs WHERE playlistId = :playlistId ORDER BY position")
     LiveData<List<Long>> getSongIdsForPlaylistLiveData(int playlistId);
 
-    @Query("SELECT " +
-            "p.playlistId, p.name, " +
-            "COUNT(psc.songId) AS songCount " +
-            "FROM playlists p " +
-            "LEFT JOIN playlist_songs psc ON p.playlistId = psc.playlistId " +
-            "GROUP BY p.playlistId, p.name")
+    // Counts and durations are maintained by triggers, so this reads one row per playlist and only
+    // re-runs when a playlist's stats change.
+    @Query("SELECT playlistId, name, songCount, totalDuration FROM playlists ORDER BY playlistId")
     LiveData<List<PlaylistWithCount>> getPlaylistsWithSongCount();
 
     @Delete
     void deletePlaylist(Playlist playlist);
 
-    @Insert(onConflict = OnConflictStrategy.IGNORE)
-    void insertSongToPlaylist(PlaylistSongCrossRef crossRef);
-
     @Query("DELETE FROM playlist_songs WHERE playlistId = :pId AND songId = :sId")
     void removeSongFromPlaylist(int pId, long sId);
 
-    @Query("SELECT songId FROM playlist_songs WHERE playlistId = :playlistId")
+    @Query("SELECT songId FROM playlist_songs WHERE playlistId = :playlistId ORDER BY position")
     List<Long> getSongIdsForPlaylist(int playlistId);
 
+    @Query("SELECT MAX(position) FROM playlist_songs WHERE playlistId = :playlistId")
+    Double getLastPosition(int playlistId);
+
+    @Query("SELECT position FROM playlist_songs WHERE playlistId = :playlistId AND songId = :songId")
+    Double getPosition(int playlistId, long songId);
+
+    @Query("UPDATE playlist_songs SET position = :position WHERE playlistId = :playlistId AND songId = :songId")
+    void setPosition(int playlistId, long songId, double position);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertSongsToPlaylist(List<PlaylistSongCrossRef> crossRefs);
+
+    @Query("DELETE FROM playlist_songs WHERE playlistId = :playlistId AND songId IN (:songIds)")
+    void deleteSongsFromPlaylist(int playlistId, List<Long> songIds);
+
+    @Query("DELETE FROM playlist_songs WHERE playlistId = :playlistId")
+    void clearPlaylist(int playlistId);
+
+    // Bulk edits run in one transaction, so playlist observers are invalidated once per batch.
+    @Transaction
+    default void addSongsToPlaylist(int playlistId, List<Long> songIds) {
+        if (songIds.isEmpty()) {
+            return;
+        }
+        Double last = getLastPosition(playlistId);
+        List<PlaylistSongCrossRef> crossRefs = new ArrayList<>(songIds.size());
+        for (Long songId : songIds) {
+            double position = PlaylistPositions.after(last);
+            crossRefs.add(new PlaylistSongCrossRef(playlistId, songId, position));
+            last = position;
+        }
+        insertSongsToPlaylist(crossRefs);
+    }
+
+    @Transaction
+    default void removeSongsFromPlaylist(int playlistId, List<Long> songIds) {
+        for (int from = 0; from < songIds.size(); from += SongDao.MAX_BIND_ARGS) {
+            deleteSongsFromPlaylist(playlistId,
+                    songIds.subList(from, Math.min(from + SongDao.MAX_BIND_ARGS, songIds.size())));
+        }
+    }
+
+    @Transaction
+    default void replacePlaylistSongs(int playlistId, List<Long> songIds) {
+        clearPlaylist(playlistId);
+        addSongsToPlaylist(playlistId, songIds);
+    }
+
+    // Moves songId between two neighbours (null at either end of the playlist) by rewriting only its own
+    // position, unless the gap is exhausted and the playlist has to be renumbered first.
+    @Transaction
+    default void moveSong(int playlistId, long songId, Long previousSongId, Long nextSongId) {
+        double position = positionBetween(playlistId, previousSongId, nextSongId);
+        if (Double.isNaN(position)) {
+            renumber(playlistId);
+            position = positionBetween(playlistId, previousSongId, nextSongId);
+        }
+        setPosition(playlistId, songId, position);
+    }
+
+    default double positionBetween(int playlistId, Long previousSongId, Long nextSongId) {
+        Double before = previousSongId == null ? null : getPosition(playlistId, previousSongId);
+        Double after = nextSongId == null ? null : getPosition(playlistId, nextSongId);
+        return PlaylistPositions.between(before, after);
+    }
+
+    @Transaction
+    default void renumber(int playlistId) {
+        List<Long> songIds = getSongIdsForPlaylist(playlistId);
+        for (int i = 0; i < songIds.size(); i++) {
+            setPosition(playlistId, songIds.get(i), PlaylistPositions.atIndex(i));
+        }
+    }
+
+    // Full-text search restricted to one playlist, ranked like SongDao.searchSongIds.
+    @Query("SELECT songs.id FROM songs_fts " +
+            "INNER JOIN songs ON songs.id = songs_fts.docid " +
+            "INNER JOIN playlist_songs psc ON psc.songId = songs.id " +
+            "WHERE psc.playlistId = :playlistId AND songs_fts MATCH :match " +
+            "ORDER BY substr(offsets(songs_fts), 1, 2) != '0 ', songs.title ASC, songs.id ASC " +
+            "LIMIT :limit")
+    List<Long> searchSongIdsInPlaylist(int playlistId, String match, int limit);
+
 
 }
@@ -51,8 +51,9 @@ public class PlaylistDetailActivity extends AppCompatActivity
             musicService.setViewModel(songViewModel);
             isBound = true;
 
-            if (songViewModel.songList.getValue() != null && !songViewModel.songList.getValue().isEmpty()) {
-                musicService.setList(songViewModel.songList.getValue());
+            LibraryStore library = songViewModel.library.getValue();
+            if (library != null && !library.isEmpty()) {
+                musicService.setLibrary(library);
             }
 
             if (musicService.getCurrentSong() != null) {
@@ -251,13 +252,20 @@ public class PlaylistDetailActivity extends AppCompatActivity
                 textTotalTime.setText(formatDuration(state.getDuration()));
             }
 
-            if (!isUserSeeking) {
-                seekBarProgress.setProgress(state.getCurrentPosition());
-                textCurrentTime.setText(formatDuration(state.getCurrentPosition()));
-            }
+            updateProgress(state.getCurrentPosition());
+        });
+        songViewModel.playbackPosition.observe(this, position -> {
+            if (position != null) updateProgress(position);
         });
     }
 
+    private void updateProgress(int position) {
+        if (!isUserSeeking) {
+            seekBarProgress.setProgress(position);
+            textCurrentTime.setText(formatDuration(position));
+        }
+    }
+
     private void updateRepeatButtonIcon(int mode) {
         int iconRes;
         switch (mode) {
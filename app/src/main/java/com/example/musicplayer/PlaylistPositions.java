@@ -0,0 +1,41 @@
+package com.example.musicplayer;
+
+// Sort keys for songs in a playlist. Appends step past the last key and a move takes the midpoint of its
+// new neighbours, so reordering rewrites one row. Each midpoint halves the gap; once a gap is too narrow
+// to split, between() returns NaN and the playlist is renumbered back to whole steps.
+public final class PlaylistPositions {
+
+    public static final double STEP = 1.0;
+    // Well above double precision at the magnitudes a playlist reaches, so a split gap stays ordered.
+    static final double MIN_GAP = 1e-9;
+
+    private PlaylistPositions() {
+    }
+
+    public static double after(Double last) {
+        return last == null ? STEP : last + STEP;
+    }
+
+    // Key for a row placed between two neighbours; null means that side is the end of the playlist.
+    public static double between(Double before, Double after) {
+        if (before == null && after == null) {
+            return STEP;
+        }
+        if (after == null) {
+            return before + STEP;
+        }
+        if (before == null) {
+            return after - STEP;
+        }
+        if (after - before < MIN_GAP) {
+            return Double.NaN;
+        }
+        double middle = before + (after - before) / 2;
+        return middle > before && middle < after ? middle : Double.NaN;
+    }
+
+    // Key of the row at index after renumbering.
+    public static double atIndex(int index) {
+        return (index + 1) * STEP;
+    }
+}
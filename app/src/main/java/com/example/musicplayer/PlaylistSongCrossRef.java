@@ -1,15 +1,26 @@
 package com.example.musicplayer;
 
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 
+// position orders the playlist; see PlaylistPositions for how keys are assigned.
 @Entity(tableName = "playlist_songs",
-        primaryKeys = {"playlistId", "songId"})
+        primaryKeys = {"playlistId", "songId"},
+        indices = {@Index(value = {"playlistId", "position"}), @Index(value = {"songId"})})
 public class PlaylistSongCrossRef {
     public int playlistId;
     public long songId;
+    public double position;
 
-    public PlaylistSongCrossRef(int playlistId, long songId) {
+    public PlaylistSongCrossRef(int playlistId, long songId, double position) {
         this.playlistId = playlistId;
         this.songId = songId;
+        this.position = position;
+    }
+
+    @Ignore
+    public PlaylistSongCrossRef(int playlistId, long songId) {
+        this(playlistId, songId, 0);
     }
 }
@@ -5,11 +5,13 @@ public class PlaylistWithCount {
     public String name;
 
     public int songCount;
+    public long totalDuration;
 
-    public PlaylistWithCount(int playlistId, String name, int songCount) {
+    public PlaylistWithCount(int playlistId, String name, int songCount, long totalDuration) {
         this.playlistId = playlistId;
         this.name = name;
         this.songCount = songCount;
+        this.totalDuration = totalDuration;
     }
 
 }
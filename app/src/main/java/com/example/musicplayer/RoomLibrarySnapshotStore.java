@@ -0,0 +1,67 @@
+package com.example.musicplayer;
+
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RoomLibrarySnapshotStore implements LibrarySnapshotStore {
+    private static final String KEY_LIBRARY_VERSION = "LibraryVersion";
+    private static final String KEY_LIBRARY_WATERMARK = "LibraryWatermark";
+
+    private final SongDao songDao;
+    private final SharedPreferences preferences;
+    private final StringDictionary artists;
+
+    public RoomLibrarySnapshotStore(SongDao songDao, SharedPreferences preferences, StringDictionary artists) {
+        this.songDao = songDao;
+        this.preferences = preferences;
+        this.artists = artists;
+    }
+
+    @Override
+    public LibrarySnapshot load() {
+        // The watermark is written after every stored sync, so with it present an empty table is an empty
+        // library, not a missing snapshot. Rows lost under a kept watermark come back through the id check.
+        String version = preferences.getString(KEY_LIBRARY_VERSION, null);
+        if (version == null || !preferences.contains(KEY_LIBRARY_WATERMARK)) {
+            return null;
+        }
+        List<Song> loaded = songDao.getAllSongs();
+        // The snapshot outlives this load, so its rows are rebuilt around the shared artist strings
+        // instead of keeping one copy per row from the database cursor.
+        List<Song> songs = new ArrayList<>(loaded.size());
+        for (Song song : loaded) {
+            songs.add(new Song(song.getId(), song.getTitle(), artists.intern(song.getArtist()),
+                    song.getPath(), song.getDuration(), song.getAlbumId()));
+        }
+        long watermark = preferences.getLong(KEY_LIBRARY_WATERMARK, LibrarySource.NO_WATERMARK);
+        return new LibrarySnapshot(version, watermark, songs);
+    }
+
+    @Override
+    public void replaceAll(LibrarySnapshot snapshot) {
+        songDao.replaceAll(snapshot.getSongs());
+        saveWatermark(snapshot);
+    }
+
+    // Rows are written before the watermark, so a crash in between only re-applies the same delta.
+    @Override
+    public void applyChanges(LibrarySnapshot snapshot, List<Song> upserted, long[] deletedIds) {
+        if (!upserted.isEmpty() || deletedIds.length > 0) {
+            List<Long> deleted = new ArrayList<>(deletedIds.length);
+            for (long id : deletedIds) {
+                deleted.add(id);
+            }
+            songDao.applyChanges(upserted, deleted);
+        }
+        saveWatermark(snapshot);
+    }
+
+    private void saveWatermark(LibrarySnapshot snapshot) {
+        preferences.edit()
+                .putString(KEY_LIBRARY_VERSION, snapshot.getVersion())
+                .putLong(KEY_LIBRARY_WATERMARK, snapshot.getWatermark())
+                .apply();
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.musicplayer;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Word-prefix index over the titles and artists of one LibraryStore. Every word is lower-cased and
+// stripped of accents, then kept once in a sorted array; a query term binary-searches the range of
+// words it prefixes and walks their postings, so cost follows the number of matches, not the library.
+// A query matches rows that have every term as a word prefix, ranked by where the terms hit.
+public class SearchIndex {
+
+    public static final SearchIndex EMPTY = build(LibraryStore.EMPTY, null);
+
+    // Posting layout: row << 2 | flags.
+    private static final int IN_TITLE = 1;
+    private static final int FIRST_WORD = 2;
+
+    private final LibraryStore library;
+    private final String[] words;
+    private final int[] postingOffsets;
+    private final int[] postings;
+    // Normalized words of each artist by dictionary code, carried over to the next build.
+    private final String[][] artistWords;
+
+    // Per-query scratch, sized to the library and reused; queries are serialized on the index.
+    private final int[] rowQuery;
+    private final int[] rowTerms;
+    private final int[] rowScore;
+    private final int[] rowTermScore;
+    private int[] candidates;
+    private int queryCount;
+
+    private SearchIndex(LibraryStore library, String[] words, int[] postingOffsets, int[] postings,
+                        String[][] artistWords) {
+        this.library = library;
+        this.words = words;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+        this.artistWords = artistWords;
+        rowQuery = new int[library.size()];
+        rowTerms = new int[library.size()];
+        rowScore = new int[library.size()];
+        rowTermScore = new int[library.size()];
+        candidates = new int[Math.min(library.size(), 1024)];
+    }
+
+    public static class Result {
+        public final String query;
+        public final LibraryStore library;
+        public final int[] rows;
+
+        Result(String query, LibraryStore library, int[] rows) {
+            this.query = query;
+            this.library = library;
+            this.rows = rows;
+        }
+    }
+
+    // Artists are tokenized once per dictionary code, and the previous index's work is reused for codes it
+    // already saw, so a rebuild after a library sync mostly pays for titles.
+    public static SearchIndex build(LibraryStore library, SearchIndex previous) {
+        int rows = library.size();
+        String[][] artistWords = new String[library.getArtistCount()][];
+        if (previous != null && previous.library.getArtists() == library.getArtists()) {
+            System.arraycopy(previous.artistWords, 0, artistWords, 0,
+                    Math.min(previous.artistWords.length, artistWords.length));
+        }
+
+        Map<String, Integer> wordIds = new HashMap<>(Math.max(16, rows));
+        int[] postingWords = new int[Math.max(16, rows * 4)];
+        int[] postingValues = new int[postingWords.length];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            int artistCode = library.getArtistCode(row);
+            String[] artist = artistWords[artistCode];
+            if (artist == null) {
+                artist = tokenize(library.getArtist(row));
+                artistWords[artistCode] = artist;
+            }
+            String[] title = tokenize(library.getTitle(row));
+            if (count + title.length + artist.length > postingWords.length) {
+                int capacity = Math.max(count + title.length + artist.length, postingWords.length * 2);
+                postingWords = Arrays.copyOf(postingWords, capacity);
+                postingValues = Arrays.copyOf(postingValues, capacity);
+            }
+            for (int i = 0; i < title.length; i++) {
+                postingWords[count] = wordId(wordIds, title[i]);
+                postingValues[count++] = row << 2 | IN_TITLE | (i == 0 ? FIRST_WORD : 0);
+            }
+            for (int i = 0; i < artist.length; i++) {
+                postingWords[count] = wordId(wordIds, artist[i]);
+                postingValues[count++] = row << 2 | (i == 0 ? FIRST_WORD : 0);
+            }
+        }
+
+        String[] words = new String[wordIds.size()];
+        for (Map.Entry<String, Integer> entry : wordIds.entrySet()) {
+            words[entry.getValue()] = entry.getKey();
+        }
+        String[] sorted = words.clone();
+        Arrays.sort(sorted);
+        Map<String, Integer> sortedIds = new HashMap<>(Math.max(16, sorted.length * 4 / 3 + 1));
+        for (int i = 0; i < sorted.length; i++) {
+            sortedIds.put(sorted[i], i);
+        }
+        int[] rank = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            rank[i] = sortedIds.get(words[i]);
+        }
+
+        // Counting sort of the postings by word; rows stay ascending within each word.
+        int[] offsets = new int[sorted.length + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[rank[postingWords[i]] + 1]++;
+        }
+        for (int i = 0; i < sorted.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] postings = new int[count];
+        int[] next = Arrays.copyOf(offsets, sorted.length);
+        for (int i = 0; i < count; i++) {
+            postings[next[rank[postingWords[i]]]++] = postingValues[i];
+        }
+        return new SearchIndex(library, sorted, offsets, postings, artistWords);
+    }
+
+    private static int wordId(Map<String, Integer> wordIds, String word) {
+        Integer id = wordIds.get(word);
+        if (id == null) {
+            id = wordIds.size();
+            wordIds.put(word, id);
+        }
+        return id;
+    }
+
+    public LibraryStore getLibrary() {
+        return library;
+    }
+
+    // Rows matching every term of query, best first, at most limit of them. A blank query matches nothing.
+    public synchronized Result search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || library.isEmpty()) {
+            return new Result(query, library, new int[0]);
+        }
+        int stamp = ++queryCount;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(rowQuery, 0);
+            queryCount = stamp = 1;
+        }
+
+        // Terms run rarest first, so the candidate set starts small and only shrinks.
+        long[] termOrder = new long[terms.length];
+        int[] wordFrom = new int[terms.length];
+        int[] wordTo = new int[terms.length];
+        for (int term = 0; term < terms.length; term++) {
+            int from = lowerBound(terms[term]);
+            int to = from;
+            while (to < words.length && words[to].startsWith(terms[term])) {
+                to++;
+            }
+            wordFrom[term] = from;
+            wordTo[term] = to;
+            termOrder[term] = (long) (postingOffsets[to] - postingOffsets[from]) << 32 | term;
+        }
+        Arrays.sort(termOrder);
+
+        int candidateCount = 0;
+        for (int term = 0; term < terms.length; term++) {
+            int original = (int) termOrder[term];
+            int prefixLength = terms[original].length();
+            for (int w = wordFrom[original]; w < wordTo[original]; w++) {
+                int weight = words[w].length() == prefixLength ? 1 : 0;
+                for (int p = postingOffsets[w]; p < postingOffsets[w + 1]; p++) {
+                    int posting = postings[p];
+                    int row = posting >>> 2;
+                    int score = weight + ((posting & IN_TITLE) != 0 ? 4 : 1) + ((posting & FIRST_WORD) != 0 ? 2 : 0);
+                    if (term == 0 && rowQuery[row] != stamp) {
+                        rowQuery[row] = stamp;
+                        rowTerms[row] = 0;
+                        rowScore[row] = 0;
+                        if (candidateCount == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                        }
+                        candidates[candidateCount++] = row;
+                    }
+                    if (rowQuery[row] != stamp) {
+                        continue;
+                    }
+                    // A row counts once per term, with its best-placed hit.
+                    if (rowTerms[row] == term) {
+                        rowTerms[row] = term + 1;
+                        rowTermScore[row] = score;
+                    } else if (rowTerms[row] == term + 1) {
+                        rowTermScore[row] = Math.max(rowTermScore[row], score);
+                    }
+                }
+            }
+            // Rows that missed this term drop out before the next one.
+            int kept = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                int row = candidates[i];
+                if (rowTerms[row] == term + 1) {
+                    rowScore[row] += rowTermScore[row];
+                    candidates[kept++] = row;
+                }
+            }
+            candidateCount = kept;
+        }
+
+        // Sort keys: score descending, then row ascending.
+        long[] keys = new long[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            int row = candidates[i];
+            keys[i] = (long) (Integer.MAX_VALUE - rowScore[row]) << 32 | row;
+        }
+        Arrays.sort(keys);
+        int[] rows = new int[Math.min(candidateCount, Math.max(limit, 0))];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (int) keys[i];
+        }
+        return new Result(query, library, rows);
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = words.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (words[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Lower-cased, accent-free runs of letters and digits.
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < folded.length(); i++) {
+            if (folded.charAt(i) >= 0x80) {
+                folded = stripMarks(Normalizer.normalize(folded, Normalizer.Form.NFD));
+                break;
+            }
+        }
+        String[] tokens = new String[4];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            if (i < folded.length() && Character.isLetterOrDigit(folded.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                if (count == tokens.length) {
+                    tokens = Arrays.copyOf(tokens, count * 2);
+                }
+                tokens[count++] = folded.substring(start, i);
+                start = -1;
+            }
+        }
+        return count == tokens.length ? tokens : Arrays.copyOf(tokens, count);
+    }
+
+    private static String stripMarks(String decomposed) {
+        StringBuilder stripped = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                stripped.append(c);
+            }
+        }
+        return stripped.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.musicplayer;
+
+public class SessionRestorer {
+
+    public interface Player {
+        void prepareAsync(Song song, PrepareCallback callback);
+
+        void seekTo(int positionMs);
+    }
+
+    public interface PrepareCallback {
+        void onPrepared();
+
+        void onError(Exception e);
+    }
+
+    public interface Listener {
+        void onSessionRestored(Song song, int positionMs);
+    }
+
+    private final Player player;
+    private volatile int generation = 0;
+    private volatile boolean restoring = false;
+
+    public SessionRestorer(Player player) {
+        this.player = player;
+    }
+
+    // Returns immediately; the seek and the listener run only once the player reports it is prepared.
+    public void restore(Song song, int positionMs, Listener listener) {
+        final int token = ++generation;
+        restoring = true;
+        player.prepareAsync(song, new PrepareCallback() {
+            @Override
+            public void onPrepared() {
+                if (token != generation) return;
+                restoring = false;
+                player.seekTo(positionMs);
+                listener.onSessionRestored(song, positionMs);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (token != generation) return;
+                restoring = false;
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public void cancel() {
+        generation++;
+        restoring = false;
+    }
+
+    public boolean isRestoring() {
+        return restoring;
+    }
+}
@@ -2,8 +2,17 @@ package com.example.musicplayer;
 
 import android.net.Uri;
 
-public class Song {
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+@Entity(tableName = "songs",
+        indices = {@Index("title"), @Index("artist"), @Index("albumId"), @Index("duration")})
+public class Song implements SongRow {
+    @PrimaryKey
     private long id;
+    @ColumnInfo(collate = ColumnInfo.NOCASE)
     private String title;
     private String artist;
     private String path;
@@ -20,15 +29,25 @@ public class Song {
         this.albumId = albumId;
     }
 
-    public long getId() { return id; }
-    public String getTitle() { return title; }
-    public String getArtist() { return artist; }
+    @Override public long getId() { return id; }
+    @Override public String getTitle() { return title; }
+    @Override public String getArtist() { return artist; }
     public String getPath() { return path; }
-    public long getDuration() { return duration; }
+    @Override public long getDuration() { return duration; }
+    @Override public long getAlbumId() { return albumId; }
 
     public Uri getContentUri() {
+        return contentUriFor(id);
+    }
+
+    public static Uri contentUriFor(long id) {
         return Uri.withAppendedPath(
                 android.provider.MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
                 String.valueOf(id));
     }
+
+    // The stored path is always this URI string, so columnar copies can drop it and rebuild it on demand.
+    public static String contentPathFor(long id) {
+        return contentUriFor(id).toString();
+    }
 }
@@ -1,19 +1,20 @@
 package com.example.musicplayer;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder> {
-    private List<Song> songList = new ArrayList<>();
+public class SongAdapter extends ListAdapter<Song, SongAdapter.SongViewHolder> {
     private final LayoutInflater inflater;
 
     private OnSongClickListener songClickListener;
@@ -24,6 +25,8 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
     }
 
     public SongAdapter(Context context, OnSongClickListener listener) {
+        super(new SongDiffCallback());
+        setHasStableIds(true);
         this.inflater = LayoutInflater.from(context);
         this.songClickListener = listener;
     }
@@ -31,65 +34,153 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
     @Override
     public SongViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = inflater.inflate(R.layout.item_song, parent, false);
-        return new SongViewHolder(view);
+        return new SongViewHolder(view, songClickListener);
     }
 
     @Override
     public void onBindViewHolder(@NonNull SongViewHolder holder, int position) {
-        Song currentSong = songList.get(position);
-        holder.titleTextView.setText(currentSong.getTitle());
-        holder.artistTextView.setText(currentSong.getArtist());
-        holder.durationTextView.setText(formatDuration(currentSong.getDuration()));
-
+        holder.bind(getItem(position));
+    }
 
-        holder.itemView.setOnClickListener(v -> {
-            if (songClickListener != null) {
-                songClickListener.onSongClick(position);
-            }
-        });
-        holder.itemView.setOnLongClickListener(v -> {
-            if (songClickListener != null) {
-                songClickListener.onSongLongClick(currentSong);
-            }
-            return true;
-        });
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     @Override
-    public int getItemCount() {
-        return songList.size();
+    public void onViewRecycled(@NonNull SongViewHolder holder) {
+        holder.unbind();
     }
+
     public void setSongs(List<Song> songs) {
-        this.songList = songs;
-        notifyDataSetChanged();
+        submitList(songs);
     }
 
-    private String formatDuration(long duration) {
-        long minutes = (duration / 1000) / 60;
-        long seconds = (duration / 1000) % 60;
-        return String.format("%d:%02d", minutes, seconds);
-    }
+    // One click listener per holder; the position is read at click time, not captured at bind time.
+    static class SongViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener, View.OnLongClickListener, AlbumArtLoader.Target {
+        private static final long NO_ALBUM = Long.MIN_VALUE;
 
-    static class SongViewHolder extends RecyclerView.ViewHolder {
         final TextView titleTextView;
         final TextView artistTextView;
         final TextView durationTextView;
+        final ImageView albumArtView;
+
+        private final OnSongClickListener songClickListener;
+        private final char[] durationBuffer = new char[DurationFormatter.MAX_LENGTH];
+        private Song boundSong;
+        private LibraryStore.View boundRow;
+        private final AlbumArtLoader albumArtLoader;
+        private final int albumArtSizePx;
+        private AlbumArtLoader.Request albumArtRequest;
+        // Album whose art is shown or on its way; rebinding the same album leaves the view alone.
+        private long boundAlbumId = NO_ALBUM;
+        private boolean showingArt;
 
-        SongViewHolder(View itemView) {
+        SongViewHolder(View itemView, OnSongClickListener listener) {
             super(itemView);
             titleTextView = itemView.findViewById(R.id.text_song_title);
             artistTextView = itemView.findViewById(R.id.text_song_artist);
             durationTextView = itemView.findViewById(R.id.text_song_duration);
+            albumArtView = itemView.findViewById(R.id.image_album_art);
+            albumArtLoader = AlbumArtLoader.get(itemView.getContext());
+            albumArtSizePx = itemView.getResources().getDimensionPixelSize(R.dimen.album_art_size);
+            songClickListener = listener;
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
+        }
+
+        void bind(Song song) {
+            boundSong = song;
+            boundRow = null;
+            bindText(song);
+        }
+
+        // Binds straight from the library columns; a Song is only built if the row is long-clicked.
+        void bind(LibraryStore.View row) {
+            boundSong = null;
+            if (boundRow == null || boundRow.getStore() != row.getStore()) {
+                boundRow = row.getStore().newView();
+            }
+            boundRow.moveTo(row.getRow());
+            bindText(row);
+        }
+
+        private void bindText(SongRow row) {
+            titleTextView.setText(row.getTitle());
+            artistTextView.setText(row.getArtist());
+            int length = DurationFormatter.format(row.getDuration(), durationBuffer);
+            durationTextView.setText(durationBuffer, 0, length);
+            bindAlbumArt(row.getAlbumId());
+        }
+
+        // The holder is its own load target, so a bind allocates nothing when the album is unchanged or its
+        // art is already in memory.
+        private void bindAlbumArt(long albumId) {
+            if (albumId == boundAlbumId) {
+                return;
+            }
+            cancelAlbumArt();
+            showPlaceholder();
+            boundAlbumId = albumId;
+            albumArtRequest = albumArtLoader.load(albumId, albumArtSizePx, this);
+        }
+
+        @Override
+        public void onArtLoaded(Bitmap bitmap) {
+            albumArtRequest = null;
+            if (bitmap != null) {
+                albumArtView.setImageBitmap(bitmap);
+                showingArt = true;
+            }
+        }
+
+        private void showPlaceholder() {
+            if (showingArt) {
+                albumArtView.setImageResource(R.mipmap.ic_music_logo);
+                showingArt = false;
+            }
+        }
+
+        private void cancelAlbumArt() {
+            if (albumArtRequest != null) {
+                albumArtRequest.cancel();
+                albumArtRequest = null;
+            }
+        }
+
+        // A recycled row must not receive art decoded for the song it used to show.
+        void unbind() {
+            cancelAlbumArt();
+            showPlaceholder();
+            boundAlbumId = NO_ALBUM;
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getBindingAdapterPosition();
+            if (songClickListener != null && position != RecyclerView.NO_POSITION) {
+                songClickListener.onSongClick(position);
+            }
+        }
+
+        @Override
+        public boolean onLongClick(View v) {
+            Song song = boundSong != null ? boundSong : boundRow != null ? boundRow.toSong() : null;
+            if (songClickListener != null && song != null) {
+                songClickListener.onSongLongClick(song);
+            }
+            return true;
         }
     }
 
     public Song getSongAtPosition(int position) {
-        if (position >= 0 && position < songList.size()) {
-            return songList.get(position);
+        if (position >= 0 && position < getItemCount()) {
+            return getItem(position);
         }
         return null;
     }
     public List<Song> getSongList() {
-        return songList;
+        return getCurrentList();
     }
 }
@@ -0,0 +1,62 @@
+package com.example.musicplayer;
+
+import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Upsert;
+
+import java.util.List;
+
+@Dao
+public interface SongDao {
+    int MAX_BIND_ARGS = 500;
+
+    @Query("SELECT * FROM songs ORDER BY title ASC, id ASC")
+    List<Song> getAllSongs();
+
+    @Query("SELECT * FROM songs ORDER BY title ASC, id ASC")
+    PagingSource<Integer, Song> getSongsPaged();
+
+    @Query("SELECT s.* FROM songs s " +
+            "INNER JOIN playlist_songs psc ON s.id = psc.songId " +
+            "WHERE psc.playlistId = :playlistId " +
+            "ORDER BY psc.position ASC")
+    LiveData<List<Song>> getSongsForPlaylist(int playlistId);
+
+    // An update rather than REPLACE's delete-and-insert, so the FTS sync triggers see every change.
+    @Upsert
+    void upsertSongs(List<Song> songs);
+
+    // Ranked full-text search: songs whose title matches come before artist-only matches, then by title.
+    // offsets() lists hits by column, so a leading "0 " means the first hit is in the title.
+    @Query("SELECT songs.id FROM songs_fts " +
+            "INNER JOIN songs ON songs.id = songs_fts.docid " +
+            "WHERE songs_fts MATCH :match " +
+            "ORDER BY substr(offsets(songs_fts), 1, 2) != '0 ', songs.title ASC, songs.id ASC " +
+            "LIMIT :limit")
+    List<Long> searchSongIds(String match, int limit);
+
+    @Query("DELETE FROM songs WHERE id IN (:songIds)")
+    void deleteSongs(List<Long> songIds);
+
+    @Query("DELETE FROM songs")
+    void deleteAllSongs();
+
+    @Transaction
+    default void replaceAll(List<Song> songs) {
+        deleteAllSongs();
+        upsertSongs(songs);
+    }
+
+    @Transaction
+    default void applyChanges(List<Song> upserted, List<Long> deletedIds) {
+        for (int from = 0; from < deletedIds.size(); from += MAX_BIND_ARGS) {
+            deleteSongs(deletedIds.subList(from, Math.min(from + MAX_BIND_ARGS, deletedIds.size())));
+        }
+        if (!upserted.isEmpty()) {
+            upsertSongs(upserted);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.musicplayer;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Objects;
+
+public class SongDiffCallback extends DiffUtil.ItemCallback<Song> {
+    @Override
+    public boolean areItemsTheSame(@NonNull Song oldItem, @NonNull Song newItem) {
+        return oldItem.getId() == newItem.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Song oldItem, @NonNull Song newItem) {
+        return oldItem.getDuration() == newItem.getDuration()
+                && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                && Objects.equals(oldItem.getArtist(), newItem.getArtist());
+    }
+}
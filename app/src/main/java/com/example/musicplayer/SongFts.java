@@ -0,0 +1,36 @@
+package com.example.musicplayer;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// External-content FTS4 index over the songs table. Room keeps it in step with songs through triggers,
+// so every write the library loader makes is indexed without extra code; docid is the song id.
+@Fts4(contentEntity = Song.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "songs_fts")
+public class SongFts {
+    public String title;
+    public String artist;
+
+    public SongFts(String title, String artist) {
+        this.title = title;
+        this.artist = artist;
+    }
+
+    // Turns free text into a MATCH expression where every word must prefix a title or artist word.
+    // Words are reduced to letters and digits first, so user input can never form FTS operators.
+    public static String matchQuery(String text) {
+        String[] words = SearchIndex.tokenize(text);
+        if (words.length == 0) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : words) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.toString();
+    }
+}
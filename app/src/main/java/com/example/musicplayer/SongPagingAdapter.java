@@ -0,0 +1,48 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+
+public class SongPagingAdapter extends PagingDataAdapter<Song, SongAdapter.SongViewHolder> {
+    private final LayoutInflater inflater;
+    private final SongAdapter.OnSongClickListener songClickListener;
+
+    public SongPagingAdapter(Context context, SongAdapter.OnSongClickListener listener) {
+        super(new SongDiffCallback());
+        this.inflater = LayoutInflater.from(context);
+        this.songClickListener = listener;
+    }
+
+    @NonNull
+    @Override
+    public SongAdapter.SongViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = inflater.inflate(R.layout.item_song, parent, false);
+        return new SongAdapter.SongViewHolder(view, songClickListener);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SongAdapter.SongViewHolder holder, int position) {
+        Song currentSong = getItem(position);
+        if (currentSong == null) {
+            return;
+        }
+        holder.bind(currentSong);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull SongAdapter.SongViewHolder holder) {
+        holder.unbind();
+    }
+
+    public Song getSongAtPosition(int position) {
+        if (position >= 0 && position < getItemCount()) {
+            return peek(position);
+        }
+        return null;
+    }
+}
@@ -1,89 +1,93 @@
 package com.example.musicplayer;
 
 import android.app.Application;
-import android.content.ContentResolver;
-import android.database.Cursor;
-import android.net.Uri;
-import android.provider.MediaStore;
+import android.content.Context;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.Transformations;
+import androidx.paging.PagingSource;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public class SongRepository implements IMusicRepository {
 
     private static final String TAG = "SongRepository";
-    private final ContentResolver contentResolver;
     private final PlaylistDao playlistDao;
     private final AppDatabase db;
+    private final SongDao songDao;
+    private final LibrarySyncEngine syncEngine;
+    private final IoScheduler ioScheduler;
+
+    private static final String LIBRARY_PREFS_NAME = "MusicLibraryPrefs";
+    private static volatile LibrarySyncEngine syncEngineInstance;
+    // Shared by the loaders and every LibraryStore, so each distinct artist name is held once per process.
+    private static final StringDictionary artistDictionary = new StringDictionary(256);
+    private static final IoScheduler defaultIoScheduler = ExecutorIoScheduler.bounded("repository-io", 2);
+    private static final IoScheduler writeScheduler = new ExecutorIoScheduler(AppDatabase.databaseWriteExecutor);
 
     public SongRepository(Application application) {
-        this.contentResolver = application.getContentResolver();
+        this(application, defaultIoScheduler);
+    }
+
+    public SongRepository(Application application, IoScheduler ioScheduler) {
+        this.ioScheduler = ioScheduler;
         this.db = AppDatabase.getDatabase(application);
         this.playlistDao = db.playlistDao();
+        this.songDao = db.songDao();
+        this.syncEngine = getSyncEngine(application);
     }
 
     public List<Song> loadSongs() {
-        List<Song> songs = new ArrayList<>();
-
-        Uri mediaStoreUri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
-
-        String[] projection = {
-                MediaStore.Audio.Media._ID,
-                MediaStore.Audio.Media.TITLE,
-                MediaStore.Audio.Media.ARTIST,
-                MediaStore.Audio.Media.DURATION,
-                MediaStore.Audio.Media.ALBUM_ID
-        };
-
-        String selection = MediaStore.Audio.Media.IS_MUSIC + "!= 0";
-        String sortOrder = MediaStore.Audio.Media.TITLE + " ASC";
-
-        try (Cursor cursor = contentResolver.query(
-                mediaStoreUri,
-                projection,
-                selection,
-                null,
-                sortOrder)) {
-
-            if (cursor != null && cursor.moveToFirst()) {
-                int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
-                int titleColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
-                int artistColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
-                int durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
-                int albumIdColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ID);
-
-                do {
-                    long id = cursor.getLong(idColumn);
-                    String title = cursor.getString(titleColumn);
-                    String artist = cursor.getString(artistColumn);
-                    long duration = cursor.getLong(durationColumn);
-                    long albumId = cursor.getLong(albumIdColumn);
-
-                    Uri contentUri = Uri.withAppendedPath(mediaStoreUri, String.valueOf(id));
-
-                    songs.add(new Song(
-                            id,
-                            title,
-                            artist,
-                            contentUri.toString(),
-                            duration,
-                            albumId
-                    ));
-                } while (cursor.moveToNext());
+        return syncEngine.sync();
+    }
 
-            }
+    // Throws CancellationException once token is cancelled; nothing from a cancelled scan is stored.
+    public List<Song> loadSongs(CancellationToken token) {
+        return syncEngine.sync(token);
+    }
+
+    public IoScheduler getIoScheduler() {
+        return ioScheduler;
+    }
+
+    public List<Song> loadCachedSongs() {
+        return syncEngine.getCachedSongs();
+    }
+
+    public StringDictionary getArtistDictionary() {
+        return artistDictionary;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static LibrarySyncEngine getSyncEngine(Application application) {
+        if (syncEngineInstance == null) {
+            synchronized (SongRepository.class) {
+                if (syncEngineInstance == null) {
+                    syncEngineInstance = new LibrarySyncEngine(
+                            new MediaStoreLibrarySource(application, artistDictionary, defaultIoScheduler),
+                            new RoomLibrarySnapshotStore(
+                                    AppDatabase.getDatabase(application).songDao(),
+                                    application.getSharedPreferences(LIBRARY_PREFS_NAME, Context.MODE_PRIVATE),
+                                    artistDictionary));
+                }
+            }
         }
+        return syncEngineInstance;
+    }
+
+    public PagingSource<Integer, Song> getSongsPaged() {
+        return songDao.getSongsPaged();
+    }
+
+    // Full-text search in SQLite, for callers without the in-memory index. Blocking; call off the main thread.
+    public List<Long> searchSongIds(String query, int limit) {
+        String match = SongFts.matchQuery(query);
+        return match == null ? Collections.emptyList() : songDao.searchSongIds(match, limit);
+    }
 
-        return songs;
+    public List<Long> searchPlaylistSongIds(int playlistId, String query, int limit) {
+        String match = SongFts.matchQuery(query);
+        return match == null ? Collections.emptyList() : playlistDao.searchSongIdsInPlaylist(playlistId, match, limit);
     }
 
     public List<Long> getSongIdsForPlaylist(int playlistId) {
@@ -95,89 +99,40 @@ public class SongRepository implements IMusicRepository {
     }
 
     public LiveData<List<Song>> getSongsInPlaylist(int playlistId) {
-        LiveData<List<Long>> songIdsLiveData = playlistDao.getSongIdsForPlaylistLiveData(playlistId);
-
-        return Transformations.switchMap(songIdsLiveData, songIds -> {
-            if (songIds == null || songIds.isEmpty()) {
-                MutableLiveData<List<Song>> emptyList = new MutableLiveData<>();
-                emptyList.setValue(Collections.emptyList());
-                return emptyList;
-            }
-            return getSongObjectsFromIds(songIds);
-        });
-    }
-    public LiveData<List<Song>> getSongObjectsFromIds(List<Long> songIds) {
-        MutableLiveData<List<Song>> result = new MutableLiveData<>();
-
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            List<Song> songs = new ArrayList<>();
-            Uri mediaStoreUri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
-
-            StringBuilder selectionBuilder = new StringBuilder(MediaStore.Audio.Media._ID + " IN (");
-            String[] selectionArgs = new String[songIds.size()];
-            for (int i = 0; i < songIds.size(); i++) {
-                selectionBuilder.append("?");
-                if (i < songIds.size() - 1) {
-                    selectionBuilder.append(",");
-                }
-                selectionArgs[i] = String.valueOf(songIds.get(i));
-            }
-            selectionBuilder.append(")");
-
-            String[] projection = {
-                    MediaStore.Audio.Media._ID,
-                    MediaStore.Audio.Media.TITLE,
-                    MediaStore.Audio.Media.ARTIST,
-                    MediaStore.Audio.Media.DURATION
-            };
-
-            try (Cursor cursor = contentResolver.query(
-                    mediaStoreUri,
-                    projection,
-                    selectionBuilder.toString(),
-                    selectionArgs,
-                    MediaStore.Audio.Media.TITLE + " ASC")) {
-
-                if (cursor != null && cursor.moveToFirst()) {
-                    int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
-                    int titleColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
-                    int artistColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
-                    int durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
-
-                    do {
-                        long id = cursor.getLong(idColumn);
-                        String title = cursor.getString(titleColumn);
-                        String artist = cursor.getString(artistColumn);
-                        long duration = cursor.getLong(durationColumn);
-
-                        Uri contentUri = Uri.withAppendedPath(mediaStoreUri, String.valueOf(id));
-
-                        songs.add(new Song(
-                                id,
-                                title,
-                                artist,
-                                contentUri.toString(),
-                                duration,
-                                0L
-                        ));
-                    } while (cursor.moveToNext());
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        return songDao.getSongsForPlaylist(playlistId);
+    }
 
-            result.postValue(songs);
-        });
+    // Edits run one at a time on the write executor, in the order they were made. They are the user's changes
+    // and must land even after the screen that made them is gone, so no caller's token can cancel them.
+    private void write(Runnable edit) {
+        writeScheduler.run(CancellationToken.NONE, edit);
+    }
 
-        return result;
+    public void createPlaylist(String name) {
+        write(() -> playlistDao.insertPlaylist(new Playlist(name, System.currentTimeMillis())));
     }
 
     public void removeSongFromPlaylist(int playlistId, long songId) {
-        AppDatabase.databaseWriteExecutor.execute(() ->
-                playlistDao.removeSongFromPlaylist(playlistId, songId)
-        );
+        write(() -> playlistDao.removeSongFromPlaylist(playlistId, songId));
     }
+
+    public void addSongsToPlaylist(int playlistId, List<Long> songIds) {
+        write(() -> playlistDao.addSongsToPlaylist(playlistId, songIds));
+    }
+
+    public void removeSongsFromPlaylist(int playlistId, List<Long> songIds) {
+        write(() -> playlistDao.removeSongsFromPlaylist(playlistId, songIds));
+    }
+
+    public void replacePlaylistSongs(int playlistId, List<Long> songIds) {
+        write(() -> playlistDao.replacePlaylistSongs(playlistId, songIds));
+    }
+
+    public void moveSongInPlaylist(int playlistId, long songId, Long previousSongId, Long nextSongId) {
+        write(() -> playlistDao.moveSong(playlistId, songId, previousSongId, nextSongId));
+    }
+
     public void deletePlaylist(Playlist playlist) {
-        AppDatabase.databaseWriteExecutor.execute(() -> playlistDao.deletePlaylist(playlist));
+        write(() -> playlistDao.deletePlaylist(playlist));
     }
 }
@@ -0,0 +1,14 @@
+package com.example.musicplayer;
+
+// Read-only song fields, implemented by Song and by LibraryStore's reusable row views.
+public interface SongRow {
+    long getId();
+
+    String getTitle();
+
+    String getArtist();
+
+    long getDuration();
+
+    long getAlbumId();
+}
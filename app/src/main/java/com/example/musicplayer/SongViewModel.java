@@ -1,39 +1,62 @@
 package com.example.musicplayer;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class SongViewModel extends AndroidViewModel {
+    private static final String TAG = "SongViewModel";
     private final SongRepository repository;
     private final PlaylistDao playlistDao;
 
-    private final MutableLiveData<List<Song>> _songList = new MutableLiveData<>();
+    private final MutableLiveData<LibraryStore> _library = new MutableLiveData<>();
     public final MutableLiveData<PlaybackState> playbackState = new MutableLiveData<>();
-    public LiveData<List<Song>> songList = _songList;
+    public final MutableLiveData<Integer> playbackPosition = new MutableLiveData<>();
+    public LiveData<LibraryStore> library = _library;
+    public final LiveData<PagingData<Song>> pagedSongs;
+
+    private final MutableLiveData<SearchIndex.Result> _searchResults = new MutableLiveData<>();
+    public final LiveData<SearchIndex.Result> searchResults = _searchResults;
+
+    private static final int PAGE_SIZE = 60;
+    private static final int SEARCH_LIMIT = 500;
+    private static final int PREFETCH_DISTANCE = 120;
 
     private boolean songsLoaded = false;
 
     public final LiveData<List<Playlist>> allPlaylists;
     public final LiveData<List<PlaylistWithCount>> allPlaylistsWithCount;
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-    private final Executor databaseExecutor = AppDatabase.databaseWriteExecutor;
+    private final IoScheduler ioScheduler;
+    // Cancelled in onCleared(), which stops a library scan, index build or search nobody is waiting for.
+    private final CancellationToken lifetime = new CancellationToken();
+    private volatile SearchIndex searchIndex = SearchIndex.EMPTY;
+    // Guarded by this. Each search and each index swap takes a new generation; only the latest posts results.
+    private String searchQuery = "";
+    private long searchGeneration;
+    private CancellationToken indexBuild;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     public interface MusicServiceCallback {
 
         void onPlaylistLoadRequest(List<Long> songIds);
 
-        void onPlaybackRequest(List<String> songPaths, int startIndex);
+        void onPlaybackRequest(long[] songIds, int startIndex);
 
     }
     private MusicServiceCallback musicServiceCallback;
@@ -46,29 +69,106 @@ public class SongViewModel extends AndroidViewModel {
     public SongViewModel(@NonNull Application application) {
         super(application);
         this.repository = new SongRepository(application);
+        this.ioScheduler = repository.getIoScheduler();
         this.playlistDao = AppDatabase.getDatabase(application).playlistDao();
 
         allPlaylists = playlistDao.getAllPlaylists();
         allPlaylistsWithCount = repository.getPlaylistsWithSongCount();
+
+        Pager<Integer, Song> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PREFETCH_DISTANCE, false),
+                repository::getSongsPaged);
+        pagedSongs = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), ViewModelKt.getViewModelScope(this));
     }
     public void loadSongs() {
         if (songsLoaded) return;
 
-        executor.execute(() -> {
-            List<Song> songs = repository.loadSongs();
-            _songList.postValue(songs);
+        ioScheduler.run(lifetime, () -> {
+            List<Song> cached = repository.loadCachedSongs();
+            if (!cached.isEmpty()) {
+                publishLibrary(LibraryStore.fromSongs(cached, repository.getArtistDictionary()));
+            }
+            List<Song> songs;
+            try {
+                songs = repository.loadSongs(lifetime);
+            } catch (LibrarySource.QueryException e) {
+                // The cached library stays up; the next loadSongs() call retries the sync.
+                Log.w(TAG, "Library sync failed", e);
+                return;
+            }
+            if (songs != cached) {
+                publishLibrary(LibraryStore.fromSongs(songs, repository.getArtistDictionary()));
+            }
             songsLoaded = true;
         });
     }
 
+    // The old index keeps answering queries until its replacement is built, then the open query is re-run
+    // so visible results follow library changes. The scheduler is a pool, so a newer library cancels the
+    // build still running for an older one rather than racing it.
+    private void publishLibrary(LibraryStore store) {
+        _library.postValue(store);
+        CancellationToken build;
+        synchronized (this) {
+            if (indexBuild != null) {
+                indexBuild.cancel();
+                indexBuild.close();
+            }
+            indexBuild = build = lifetime.child();
+        }
+        ioScheduler.run(build, () -> {
+            SearchIndex built = SearchIndex.build(store, searchIndex);
+            String query;
+            long generation;
+            synchronized (this) {
+                if (build.isCancelled()) {
+                    return;
+                }
+                searchIndex = built;
+                query = searchQuery;
+                generation = ++searchGeneration;
+            }
+            runSearch(query, generation);
+        });
+    }
+
+    // Results arrive on searchResults; typing faster than queries finish only posts the latest one.
+    public void search(String query) {
+        String current = query == null ? "" : query;
+        long generation;
+        synchronized (this) {
+            searchQuery = current;
+            generation = ++searchGeneration;
+        }
+        ioScheduler.run(lifetime, () -> runSearch(current, generation));
+    }
+
+    private void runSearch(String query, long generation) {
+        if (!isLatestSearch(generation)) {
+            return;
+        }
+        SearchIndex.Result result = searchIndex.search(query, SEARCH_LIMIT);
+        if (isLatestSearch(generation)) {
+            _searchResults.postValue(result);
+        }
+    }
+
+    private synchronized boolean isLatestSearch(long generation) {
+        return generation == searchGeneration;
+    }
+
+    // Only the id read runs on the scheduler; the service mutates its queue and player, so the request is
+    // delivered on the main thread like every other playback call.
     public void playPlaylist(int playlistId) {
-        databaseExecutor.execute(() -> {
+        ioScheduler.run(lifetime, () -> {
             List<Long> songIds = repository.getSongIdsForPlaylist(playlistId);
 
             if (songIds != null && !songIds.isEmpty()) {
-                if (musicServiceCallback != null) {
-                    musicServiceCallback.onPlaylistLoadRequest(songIds);
-                }
+                mainHandler.post(() -> {
+                    if (musicServiceCallback != null) {
+                        musicServiceCallback.onPlaylistLoadRequest(songIds);
+                    }
+                });
             }
         });
     }
@@ -76,18 +176,20 @@ public class SongViewModel extends AndroidViewModel {
     public void updatePlaybackState(PlaybackState state) {
         playbackState.postValue(state);
     }
+
+    public void updatePlaybackPosition(int currentPosition) {
+        playbackPosition.postValue(currentPosition);
+    }
+
+    public boolean hasPlaybackObservers() {
+        return playbackState.hasActiveObservers() || playbackPosition.hasActiveObservers();
+    }
     public void createPlaylist(String name) {
-        databaseExecutor.execute(() -> {
-            Playlist newPlaylist = new Playlist(name, System.currentTimeMillis());
-            playlistDao.insertPlaylist(newPlaylist);
-        });
+        repository.createPlaylist(name);
     }
 
     public void addSongToPlaylist(int playlistId, long songId) {
-        databaseExecutor.execute(() -> {
-            PlaylistSongCrossRef crossRef = new PlaylistSongCrossRef(playlistId, songId);
-            playlistDao.insertSongToPlaylist(crossRef);
-        });
+        repository.addSongsToPlaylist(playlistId, Collections.singletonList(songId));
     }
 
 
@@ -98,6 +200,24 @@ public class SongViewModel extends AndroidViewModel {
     public void removeSongFromPlaylist(int playlistId, long songId) {
         repository.removeSongFromPlaylist(playlistId, songId);
     }
+
+    // Bulk variants: one transaction and one observer update for the whole list.
+    public void addSongsToPlaylist(int playlistId, List<Long> songIds) {
+        repository.addSongsToPlaylist(playlistId, new ArrayList<>(songIds));
+    }
+
+    public void removeSongsFromPlaylist(int playlistId, List<Long> songIds) {
+        repository.removeSongsFromPlaylist(playlistId, new ArrayList<>(songIds));
+    }
+
+    public void replacePlaylistSongs(int playlistId, List<Long> songIds) {
+        repository.replacePlaylistSongs(playlistId, new ArrayList<>(songIds));
+    }
+
+    // Neighbours are the songs around the new spot, null at either end.
+    public void moveSongInPlaylist(int playlistId, long songId, Long previousSongId, Long nextSongId) {
+        repository.moveSongInPlaylist(playlistId, songId, previousSongId, nextSongId);
+    }
     public void deletePlaylist(int playlistId, String playlistName) {
         Playlist playlistToDelete = new Playlist(playlistName, 0);
         playlistToDelete.playlistId = playlistId;
@@ -108,16 +228,34 @@ public class SongViewModel extends AndroidViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        executor.shutdown();
+        // Also cancels any index build and search still queued or running.
+        lifetime.cancel();
+    }
+
+    public void playFromLibrary(Song song) {
+        if (song != null) {
+            playFromLibrary(song.getId());
+        }
+    }
+
+    public void playFromLibrary(long songId) {
+        LibraryStore store = _library.getValue();
+        if (store == null) {
+            return;
+        }
+        int row = store.rowOf(songId);
+        if (row >= 0 && musicServiceCallback != null) {
+            musicServiceCallback.onPlaybackRequest(store.getIds(), row);
+        }
     }
 
     public void startPlayback(List<Song> queue, int startIndex) {
         if (musicServiceCallback != null) {
-            List<String> songPaths = new ArrayList<>();
-            for (Song song : queue) {
-                songPaths.add(song.getPath());
+            long[] songIds = new long[queue.size()];
+            for (int i = 0; i < songIds.length; i++) {
+                songIds[i] = queue.get(i).getId();
             }
-            musicServiceCallback.onPlaybackRequest(songPaths, startIndex);
+            musicServiceCallback.onPlaybackRequest(songIds, startIndex);
         }
     }
 }
@@ -0,0 +1,66 @@
+package com.example.musicplayer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Assigns dense int codes to distinct strings and keeps one copy of each. Code 0 is reserved for null.
+// One dictionary can be shared by the loader and every LibraryStore built from its output: writers are
+// serialized, and codes never move, so decode() needs no lock for any code that was handed out before.
+public class StringDictionary {
+    public static final int NULL_CODE = 0;
+
+    private final Map<String, Integer> codes;
+    private volatile String[] values;
+    private int size = 1;
+
+    public StringDictionary() {
+        this(16);
+    }
+
+    public StringDictionary(int expectedSize) {
+        codes = new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+        values = new String[Math.max(2, expectedSize + 1)];
+    }
+
+    public synchronized int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size + (size >> 1) + 1);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+
+    // The shared instance equal to value, so rows that repeat a string all point at one copy.
+    public String intern(String value) {
+        return decode(encode(value));
+    }
+
+    // Returns the code of an already-encoded string, or -1 if it has never been seen.
+    public synchronized int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int code) {
+        return values[code];
+    }
+
+    // Number of codes handed out, including the null code.
+    public synchronized int size() {
+        return size;
+    }
+}
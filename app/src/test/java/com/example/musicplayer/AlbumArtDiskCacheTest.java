@@ -0,0 +1,66 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class AlbumArtDiskCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static AlbumArtDiskCache.Writer bytes(int count) {
+        return out -> out.write(new byte[count]);
+    }
+
+    @Test
+    public void storedEntriesAreReadBack() throws IOException {
+        AlbumArtDiskCache cache = new AlbumArtDiskCache(new File(folder.getRoot(), "art"), 1_000);
+        assertNull(cache.get("7_96"));
+
+        cache.put("7_96", out -> out.write(new byte[]{1, 2, 3}));
+
+        File file = cache.get("7_96");
+        assertNotNull(file);
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file.toPath()));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void oldestEntriesAreEvictedPastTheByteLimit() {
+        File dir = new File(folder.getRoot(), "art");
+        AlbumArtDiskCache cache = new AlbumArtDiskCache(dir, 250);
+        cache.put("a", bytes(100));
+        cache.put("b", bytes(100));
+        new File(dir, "a").setLastModified(1_000);
+        new File(dir, "b").setLastModified(2_000);
+
+        cache.put("c", bytes(100));
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    public void failedWritesLeaveNoEntry() {
+        File dir = new File(folder.getRoot(), "art");
+        AlbumArtDiskCache cache = new AlbumArtDiskCache(dir, 1_000);
+
+        cache.put("broken", out -> {
+            out.write(new byte[10]);
+            throw new IOException("encode failed");
+        });
+
+        assertNull(cache.get("broken"));
+        assertEquals(0, dir.list().length);
+        assertEquals(0, new AlbumArtDiskCache(dir, 1_000).size());
+    }
+}
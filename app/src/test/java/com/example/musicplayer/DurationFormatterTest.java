@@ -0,0 +1,71 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+public class DurationFormatterTest {
+
+    private static final int BINDS = 200_000;
+
+    @Test
+    public void matchesPreviousStringFormatOutput() {
+        long[] durations = {0, 999, 1000, 59_999, 60_000, 61_000, 225_000, 3_599_000, 3_600_000, 36_000_000};
+        char[] buffer = new char[DurationFormatter.MAX_LENGTH];
+        for (long duration : durations) {
+            String expected = String.format("%d:%02d", (duration / 1000) / 60, (duration / 1000) % 60);
+            int length = DurationFormatter.format(duration, buffer);
+            assertEquals(expected, new String(buffer, 0, length));
+            assertEquals(expected, DurationFormatter.format(duration));
+        }
+    }
+
+    @Test
+    public void fitsLargestDuration() {
+        char[] buffer = new char[DurationFormatter.MAX_LENGTH];
+        int length = DurationFormatter.format(Long.MAX_VALUE, buffer);
+        assertTrue(length <= DurationFormatter.MAX_LENGTH);
+    }
+
+    // Allocation microbenchmark for the duration part of SongViewHolder.bind().
+    @Test
+    public void bufferedFormatDoesNotAllocatePerBind() throws Exception {
+        Object threadBean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean").invoke(null);
+        Method allocatedBytes;
+        try {
+            allocatedBytes = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class);
+        } catch (ClassNotFoundException e) {
+            allocatedBytes = null;
+        }
+        assumeTrue("Allocation counters unavailable on this JVM", allocatedBytes != null);
+        long threadId = Thread.currentThread().getId();
+
+        char[] buffer = new char[DurationFormatter.MAX_LENGTH];
+        int sink = 0;
+        for (int i = 0; i < BINDS; i++) {
+            sink += DurationFormatter.format(i * 1000L, buffer);
+            sink += String.format("%d:%02d", i / 60, i % 60).length();
+        }
+
+        long before = (long) allocatedBytes.invoke(threadBean, threadId);
+        for (int i = 0; i < BINDS; i++) {
+            sink += DurationFormatter.format(i * 1000L, buffer);
+        }
+        long buffered = (long) allocatedBytes.invoke(threadBean, threadId) - before;
+
+        before = (long) allocatedBytes.invoke(threadBean, threadId);
+        for (int i = 0; i < BINDS; i++) {
+            sink += String.format("%d:%02d", i / 60, i % 60).length();
+        }
+        long formatted = (long) allocatedBytes.invoke(threadBean, threadId) - before;
+
+        assertTrue(sink > 0);
+        assertTrue("buffered binds allocated " + buffered + " bytes", buffered / BINDS < 1);
+        assertTrue(formatted > buffered);
+    }
+}
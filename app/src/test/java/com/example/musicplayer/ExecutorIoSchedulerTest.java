@@ -0,0 +1,179 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ExecutorIoSchedulerTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private final IoScheduler scheduler = new ExecutorIoScheduler(pool);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void taskCancelledBeforeItStartsNeverRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CancellationToken blocker = new CancellationToken();
+        scheduler.run(blocker, () -> awaitQuietly(release));
+        scheduler.run(blocker, () -> awaitQuietly(release));
+
+        AtomicBoolean ran = new AtomicBoolean();
+        CancellationToken token = new CancellationToken();
+        Future<?> queued = scheduler.run(token, () -> ran.set(true));
+        token.cancel();
+        release.countDown();
+
+        assertTrue(queued.isCancelled());
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void cancellingARunningTaskInterruptsIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        CancellationToken token = new CancellationToken();
+        scheduler.run(token, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                stopped.countDown();
+            }
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        token.cancel();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fanOutKeepsOrderAndCancelsSiblingsOnFailure() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int value = i;
+            tasks.add(() -> value * value);
+        }
+        List<Integer> results = scheduler.invokeAll(CancellationToken.NONE, tasks);
+        assertEquals(8, results.size());
+        assertEquals(49, (int) results.get(7));
+
+        List<Callable<Integer>> failing = new ArrayList<>();
+        failing.add(() -> {
+            throw new IllegalStateException("boom");
+        });
+        failing.add(() -> {
+            Thread.sleep(60_000);
+            return 0;
+        });
+        try {
+            scheduler.invokeAll(CancellationToken.NONE, failing);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        // The sleeping sibling was either dropped from the queue or interrupted.
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void nestedFanOutInASaturatedPoolCompletes() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            IoScheduler bounded = new ExecutorIoScheduler(single);
+            List<Callable<Integer>> inner = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                inner.add(() -> 1);
+            }
+            Future<List<Integer>> outer = bounded.submit(CancellationToken.NONE,
+                    () -> bounded.invokeAll(CancellationToken.NONE, inner));
+            assertEquals(4, outer.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancellingTheParentCancelsTheFanOut() throws Exception {
+        CancellationToken parent = new CancellationToken();
+        CountDownLatch started = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            started.countDown();
+            Thread.sleep(60_000);
+            return 0;
+        });
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Integer>> fanOut = caller.submit(() -> scheduler.invokeAll(parent, tasks));
+
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            parent.cancel();
+            try {
+                fanOut.get(5, TimeUnit.SECONDS);
+                fail("Expected cancellation");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CancellationException);
+            }
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void virtualThreadsRunTheSameContract() throws Exception {
+        Assume.assumeTrue(ExecutorIoScheduler.virtualThreadsAvailable());
+        IoScheduler virtual = ExecutorIoScheduler.virtualThreads();
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            tasks.add(() -> {
+                Thread.sleep(10);
+                return 1L;
+            });
+        }
+        List<Long> results = virtual.invokeAll(CancellationToken.NONE, tasks);
+        assertEquals(1_000, results.size());
+    }
+
+    @Test
+    public void closedChildIsDetachedFromItsParent() {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken child = parent.child();
+        child.close();
+        parent.cancel();
+        assertFalse(child.isCancelled());
+
+        CancellationToken live = new CancellationToken();
+        CancellationToken attached = live.child();
+        live.cancel();
+        assertTrue(attached.isCancelled());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
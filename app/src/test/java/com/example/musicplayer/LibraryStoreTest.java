@@ -0,0 +1,151 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class LibraryStoreTest {
+
+    private static final int LIBRARY_SIZE = 50_000;
+    private static final int ARTIST_COUNT = 700;
+
+    private static List<Song> syntheticSongs(int count) {
+        List<Song> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = 10_000 + i * 3L;
+            songs.add(new Song(id, "Track " + i, "Artist " + (i % ARTIST_COUNT),
+                    "content://media/external/audio/media/" + id, 120_000 + i, i / 12));
+        }
+        return songs;
+    }
+
+    @Test
+    public void columnsMatchTheSongsTheyWereBuiltFrom() {
+        List<Song> songs = syntheticSongs(LIBRARY_SIZE);
+        LibraryStore store = LibraryStore.fromSongs(songs);
+
+        assertEquals(LIBRARY_SIZE, store.size());
+        for (int row = 0; row < LIBRARY_SIZE; row++) {
+            Song song = songs.get(row);
+            assertEquals(song.getId(), store.getId(row));
+            assertEquals(song.getTitle(), store.getTitle(row));
+            assertEquals(song.getArtist(), store.getArtist(row));
+            assertEquals(song.getDuration(), store.getDuration(row));
+            assertEquals(song.getAlbumId(), store.getAlbumId(row));
+            assertEquals(row, store.rowOf(song.getId()));
+        }
+        assertFalse(store.contains(1));
+        assertEquals(-1, store.rowOf(1));
+    }
+
+    // A 5k-song playlist resolved against a 50k library, the way the service maps queue ids to rows.
+    @Test
+    public void lookupOf5kIdsIn50kLibraryIsFast() {
+        List<Song> songs = syntheticSongs(LIBRARY_SIZE);
+        LibraryStore store = LibraryStore.fromSongs(songs);
+        Random random = new Random(42);
+        long[] ids = new long[5_000];
+        int[] expected = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            expected[i] = random.nextInt(LIBRARY_SIZE);
+            ids[i] = songs.get(expected[i]).getId();
+        }
+
+        long start = System.nanoTime();
+        int[] rows = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rows[i] = store.rowOf(ids[i]);
+        }
+        long lookupMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertArrayEquals(expected, rows);
+        assertTrue("5k x 50k lookup took " + lookupMs + " ms", lookupMs < 500);
+    }
+
+    @Test
+    public void artistsAreStoredOncePerDistinctName() {
+        LibraryStore store = LibraryStore.fromSongs(syntheticSongs(LIBRARY_SIZE));
+
+        // One code per artist plus the reserved null code.
+        assertEquals(ARTIST_COUNT + 1, store.getArtists().size());
+        assertSame(store.getArtist(0), store.getArtist(ARTIST_COUNT));
+        assertEquals(store.getArtistCode(5), store.getArtistCode(5 + ARTIST_COUNT));
+    }
+
+    @Test
+    public void viewFollowsTheRowItIsMovedTo() {
+        LibraryStore store = new LibraryStore.Builder(1)
+                .add(7, "First", "A", 1_000, 1)
+                .add(8, "Second", null, 2_000, 2)
+                .add(9, "Third", "A", 3_000, 3)
+                .build();
+        LibraryStore.View view = store.newView();
+
+        SongRow row = view.moveTo(1);
+        assertEquals(8, row.getId());
+        assertEquals("Second", row.getTitle());
+        assertNull(row.getArtist());
+        assertEquals(StringDictionary.NULL_CODE, store.getArtistCode(1));
+
+        view.moveTo(2);
+        assertEquals(9, row.getId());
+        assertEquals("A", row.getArtist());
+        assertEquals(3_000, row.getDuration());
+        assertEquals(3, row.getAlbumId());
+        assertSame(store, view.getStore());
+    }
+
+    @Test
+    public void albumsGetDenseCodesAndGroupRows() {
+        LibraryStore store = LibraryStore.fromSongs(syntheticSongs(LIBRARY_SIZE));
+
+        assertEquals((LIBRARY_SIZE + 11) / 12, store.getAlbumCount());
+        int albumCode = store.getAlbumCode(120);
+        assertEquals(10, store.getAlbumIdForCode(albumCode));
+        assertArrayEquals(new int[]{120, 121, 122, 123, 124, 125, 126, 127, 128, 129, 130, 131},
+                store.getRowsForAlbum(albumCode));
+
+        int artistCode = store.artistCodeOf("Artist 3");
+        int[] rows = store.getRowsForArtist(artistCode);
+        assertEquals((LIBRARY_SIZE - 3 + ARTIST_COUNT - 1) / ARTIST_COUNT, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(3 + i * ARTIST_COUNT, rows[i]);
+        }
+        assertEquals(-1, store.artistCodeOf("Nobody"));
+        assertEquals(0, store.getRowsForArtist(-1).length);
+    }
+
+    @Test
+    public void storesBuiltFromOneDictionaryShareArtistCodesAndStrings() {
+        StringDictionary artists = new StringDictionary();
+        String loaded = artists.intern(new String("Shared Artist"));
+        assertSame(loaded, artists.intern(new String("Shared Artist")));
+
+        List<Song> first = new ArrayList<>();
+        first.add(new Song(1, "One", new String("Shared Artist"), "uri", 1_000, 0));
+        List<Song> second = new ArrayList<>();
+        second.add(new Song(2, "Other", "Someone Else", "uri", 1_000, 0));
+        second.add(new Song(3, "Two", new String("Shared Artist"), "uri", 1_000, 0));
+
+        LibraryStore a = LibraryStore.fromSongs(first, artists);
+        LibraryStore b = LibraryStore.fromSongs(second, artists);
+
+        assertEquals(a.getArtistCode(0), b.getArtistCode(1));
+        assertSame(loaded, a.getArtist(0));
+        assertSame(loaded, b.getArtist(1));
+        // Codes added after a store was built are out of its range.
+        assertEquals(-1, a.artistCodeOf("Someone Else"));
+        assertEquals(b.getArtistCode(0), b.artistCodeOf("Someone Else"));
+    }
+
+    @Test
+    public void emptyStoreHasNoRows() {
+        assertTrue(LibraryStore.EMPTY.isEmpty());
+        assertEquals(0, LibraryStore.EMPTY.getIds().length);
+        assertFalse(LibraryStore.EMPTY.contains(0));
+    }
+}
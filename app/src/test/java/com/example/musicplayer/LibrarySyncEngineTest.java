@@ -0,0 +1,298 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+public class LibrarySyncEngineTest {
+
+    private static class FakeRow {
+        final Song song;
+        final long generation;
+
+        FakeRow(Song song, long generation) {
+            this.song = song;
+            this.generation = generation;
+        }
+    }
+
+    private static class FakeLibrarySource implements LibrarySource {
+        final Map<Long, FakeRow> rows = new LinkedHashMap<>();
+        String version = "v1";
+        long generation = 0;
+        int fullScans = 0;
+        int rowsRead = 0;
+
+        void put(long id, String title) {
+            generation++;
+            rows.put(id, new FakeRow(new Song(id, title, "Artist", "content://" + id, 1000, 0), generation));
+        }
+
+        // A row whose modification stamp is older than anything synced, e.g. a file copied in with its mtime.
+        void putStale(long id, String title) {
+            rows.put(id, new FakeRow(new Song(id, title, "Artist", "content://" + id, 1000, 0), 0));
+        }
+
+        void delete(long id) {
+            generation++;
+            rows.remove(id);
+        }
+
+        @Override
+        public String getVersion() {
+            return version;
+        }
+
+        @Override
+        public long queryChangedSince(long watermark, List<Song> out) {
+            if (watermark == NO_WATERMARK) fullScans++;
+            long newWatermark = watermark;
+            for (FakeRow row : rows.values()) {
+                if (row.generation > watermark) {
+                    out.add(row.song);
+                    rowsRead++;
+                    newWatermark = Math.max(newWatermark, row.generation);
+                }
+            }
+            return newWatermark;
+        }
+
+        @Override
+        public void queryByIds(long[] ids, List<Song> out) {
+            for (long id : ids) {
+                FakeRow row = rows.get(id);
+                if (row != null) out.add(row.song);
+            }
+        }
+
+        @Override
+        public long[] queryAllIds() {
+            long[] ids = new long[rows.size()];
+            int i = 0;
+            for (Long id : rows.keySet()) {
+                ids[i++] = id;
+            }
+            return ids;
+        }
+    }
+
+    private static class InMemorySnapshotStore implements LibrarySnapshotStore {
+        LibrarySnapshot saved;
+        List<Song> lastUpserted;
+        long[] lastDeleted;
+
+        @Override
+        public LibrarySnapshot load() {
+            return saved;
+        }
+
+        @Override
+        public void replaceAll(LibrarySnapshot snapshot) {
+            saved = snapshot;
+        }
+
+        @Override
+        public void applyChanges(LibrarySnapshot snapshot, List<Song> upserted, long[] deletedIds) {
+            saved = snapshot;
+            lastUpserted = upserted;
+            lastDeleted = deletedIds;
+        }
+    }
+
+    private static List<String> titles(List<Song> songs) {
+        List<String> titles = new ArrayList<>();
+        for (Song song : songs) titles.add(song.getTitle());
+        return titles;
+    }
+
+    @Test
+    public void firstSyncIsFullScanSortedByTitle() {
+        FakeLibrarySource source = new FakeLibrarySource();
+        source.put(1, "Charlie");
+        source.put(2, "alpha");
+        source.put(3, "Bravo");
+
+        List<Song> songs = new LibrarySyncEngine(source, new InMemorySnapshotStore()).sync();
+
+        assertEquals(1, source.fullScans);
+        assertEquals(List.of("alpha", "Bravo", "Charlie"), titles(songs));
+    }
+
+    @Test
+    public void laterSyncsOnlyReadDeltasAndMergeThem() {
+        FakeLibrarySource source = new FakeLibrarySource();
+        InMemorySnapshotStore store = new InMemorySnapshotStore();
+        for (long id = 1; id <= 100; id++) {
+            source.put(id, "Song " + (1000 + id));
+        }
+        LibrarySyncEngine engine = new LibrarySyncEngine(source, store);
+        engine.sync();
+        source.rowsRead = 0;
+
+        source.put(101, "Added");
+        source.put(5, "Renamed");
+        source.delete(7);
+
+        List<Song> songs = engine.sync();
+
+        assertEquals(1, source.fullScans);
+        assertEquals(2, source.rowsRead);
+        assertEquals(100, songs.size());
+        assertEquals("Added", songs.get(0).getTitle());
+        assertEquals("Renamed", songs.get(1).getTitle());
+        assertEquals(2, store.lastUpserted.size());
+        assertArrayEquals(new long[]{7}, store.lastDeleted);
+        for (Song song : songs) {
+            assertNotEquals(7, song.getId());
+        }
+    }
+
+    @Test
+    public void unchangedLibraryReturnsCachedListWithoutRescanning() {
+        FakeLibrarySource source = new FakeLibrarySource();
+        source.put(1, "One");
+        InMemorySnapshotStore store = new InMemorySnapshotStore();
+        new LibrarySyncEngine(source, store).sync();
+
+        LibrarySyncEngine restarted = new LibrarySyncEngine(source, store);
+        List<Song> cached = restarted.getCachedSongs();
+        List<Song> synced = restarted.sync();
+
+        assertEquals(1, source.fullScans);
+        assertSame(cached, synced);
+    }
+
+    @Test
+    public void versionChangeForcesFullRescan() {
+        FakeLibrarySource source = new FakeLibrarySource();
+        source.put(1, "One");
+        LibrarySyncEngine engine = new LibrarySyncEngine(source, new InMemorySnapshotStore());
+        engine.sync();
+
+        source.version = "v2";
+        engine.sync();
+
+        assertEquals(2, source.fullScans);
+    }
+
+    @Test
+    public void unreadableIdsDoNotDeleteTheLibrary() {
+        FakeLibrarySource source = new FakeLibrarySource() {
+            @Override
+            public long[] queryAllIds() {
+                return null;
+            }
+        };
+        source.put(1, "One");
+        source.put(2, "Two");
+        LibrarySyncEngine engine = new LibrarySyncEngine(source, new InMemorySnapshotStore());
+        engine.sync();
+
+        assertEquals(2, engine.sync().size());
+    }
+
+    @Test
+    public void cancelledScanStoresNothing() {
+        FakeLibrarySource source = new FakeLibrarySource() {
+            @Override
+            public long queryChangedSince(long watermark, List<Song> out, CancellationToken token) {
+                long result = queryChangedSince(watermark, out);
+                // The owner goes away while the scan is still running.
+                token.cancel();
+                return result;
+            }
+        };
+        source.put(1, "Alpha");
+        InMemorySnapshotStore store = new InMemorySnapshotStore();
+        LibrarySyncEngine engine = new LibrarySyncEngine(source, store);
+
+        try {
+            engine.sync(new CancellationToken());
+            fail("Expected CancellationException");
+        } catch (CancellationException expected) {
+        }
+        assertNull(store.saved);
+
+        assertEquals(List.of("Alpha"), titles(engine.sync()));
+    }
+
+    @Test
+    public void failedScanKeepsThePreviousSnapshotAndWatermark() {
+        boolean[] failing = {false};
+        FakeLibrarySource source = new FakeLibrarySource() {
+            @Override
+            public long queryChangedSince(long watermark, List<Song> out) {
+                long result = super.queryChangedSince(watermark, out);
+                if (failing[0]) {
+                    throw new QueryException("cursor closed", null);
+                }
+                return result;
+            }
+        };
+        source.put(1, "One");
+        InMemorySnapshotStore store = new InMemorySnapshotStore();
+        LibrarySyncEngine engine = new LibrarySyncEngine(source, store);
+        engine.sync();
+        LibrarySnapshot before = store.saved;
+
+        source.put(2, "Two");
+        source.put(3, "Three");
+        failing[0] = true;
+        try {
+            engine.sync();
+            fail("Expected QueryException");
+        } catch (LibrarySource.QueryException expected) {
+        }
+        assertSame(before, store.saved);
+
+        failing[0] = false;
+        assertEquals(3, engine.sync().size());
+    }
+
+    @Test
+    public void liveIdsMissingFromTheSnapshotAreFetched() {
+        FakeLibrarySource source = new FakeLibrarySource();
+        source.put(1, "One");
+        source.put(2, "Two");
+        InMemorySnapshotStore store = new InMemorySnapshotStore();
+        LibrarySyncEngine engine = new LibrarySyncEngine(source, store);
+        engine.sync();
+
+        source.putStale(3, "Copied");
+        List<Song> songs = engine.sync();
+
+        assertEquals(List.of("Copied", "One", "Two"), titles(songs));
+        assertEquals(1, store.lastUpserted.size());
+        assertEquals(3, store.lastUpserted.get(0).getId());
+    }
+
+    @Test
+    public void cancelledIdLookupKeepsThePreviousSnapshot() {
+        FakeLibrarySource source = new FakeLibrarySource() {
+            @Override
+            public void queryByIds(long[] ids, List<Song> out, CancellationToken token) {
+                queryByIds(ids, out);
+                token.cancel();
+            }
+        };
+        source.put(1, "One");
+        InMemorySnapshotStore store = new InMemorySnapshotStore();
+        LibrarySyncEngine engine = new LibrarySyncEngine(source, store);
+        engine.sync();
+        LibrarySnapshot before = store.saved;
+
+        source.putStale(2, "Copied");
+        try {
+            engine.sync(new CancellationToken());
+            fail("Expected CancellationException");
+        } catch (CancellationException expected) {
+        }
+        assertSame(before, store.saved);
+    }
+}
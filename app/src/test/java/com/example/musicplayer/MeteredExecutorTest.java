@@ -0,0 +1,63 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MeteredExecutorTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private final MeteredExecutor executor = new MeteredExecutor("test", pool, now::get);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void recordsTimeSpentQueuedBehindEarlierTasks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // The blocked task took 5 ms, all of which the next one spent waiting.
+            now.addAndGet(5_000_000);
+            done.countDown();
+        });
+        executor.execute(done::countDown);
+        assertEquals(1, executor.getStats().queued);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        MeteredExecutor.Stats stats = executor.getStats();
+        assertEquals(2, stats.tasks);
+        assertEquals(5.0, stats.getMaxWaitMs(), 0.001);
+        assertEquals(2.5, stats.getMeanWaitMs(), 0.001);
+    }
+
+    @Test
+    public void resetClearsCounters() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        executor.resetStats();
+        assertEquals(0, executor.getStats().tasks);
+        assertEquals(0, executor.getStats().maxWaitNanos);
+    }
+}
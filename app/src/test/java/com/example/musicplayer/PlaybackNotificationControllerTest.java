@@ -0,0 +1,105 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PlaybackNotificationControllerTest {
+
+    private final List<Runnable> frames = new ArrayList<>();
+    private final List<String> notifications = new ArrayList<>();
+    private final List<Long> metadata = new ArrayList<>();
+
+    private final PlaybackNotificationController controller = new PlaybackNotificationController(
+            new PlaybackNotificationController.Sink() {
+                @Override
+                public void showNotification(long songId, String title, String artist, Bitmap art,
+                                             boolean playing, boolean startForeground) {
+                    notifications.add(songId + (playing ? " playing" : " paused") + (startForeground ? " foreground" : ""));
+                }
+
+                @Override
+                public void updateMetadata(long songId, String title, String artist, long durationMs,
+                                           Bitmap art) {
+                    metadata.add(songId);
+                }
+            },
+            frames::add);
+
+    private void runFrames() {
+        List<Runnable> pending = new ArrayList<>(frames);
+        frames.clear();
+        for (Runnable frame : pending) {
+            frame.run();
+        }
+    }
+
+    @Test
+    public void burstWithinOneFramePostsOnce() {
+        for (int i = 0; i < 50; i++) {
+            controller.update(1, "Title", "Artist", 180_000, null, i % 2 == 0);
+        }
+        assertEquals(1, frames.size());
+        runFrames();
+
+        assertEquals(1, notifications.size());
+        assertEquals("1 paused foreground", notifications.get(0));
+        assertEquals(1, metadata.size());
+    }
+
+    @Test
+    public void unchangedSongIsNotPostedAgain() {
+        controller.update(1, "Title", "Artist", 180_000, null, true);
+        runFrames();
+        // A seek re-requests the same content.
+        controller.update(1, "Title", "Artist", 180_000, null, true);
+        runFrames();
+
+        assertEquals(1, notifications.size());
+        assertEquals(1, metadata.size());
+    }
+
+    @Test
+    public void pauseRepostsNotificationButNotMetadata() {
+        controller.update(1, "Title", "Artist", 180_000, null, true);
+        runFrames();
+        controller.update(1, "Title", "Artist", 180_000, null, false);
+        runFrames();
+
+        assertEquals(2, notifications.size());
+        assertEquals("1 paused", notifications.get(1));
+        assertEquals(1, metadata.size());
+    }
+
+    @Test
+    public void trackChangeRepostsBoth() {
+        controller.update(1, "Title", "Artist", 180_000, null, true);
+        runFrames();
+        controller.update(2, "Other", "Artist", 200_000, null, true);
+        runFrames();
+
+        assertEquals(2, notifications.size());
+        assertEquals(2, metadata.size());
+        assertEquals(2L, (long) metadata.get(1));
+    }
+
+    @Test
+    public void resetDropsPendingUpdateAndStartsForegroundAgain() {
+        controller.update(1, "Title", "Artist", 180_000, null, true);
+        runFrames();
+        controller.update(2, "Other", "Artist", 200_000, null, true);
+        controller.reset();
+        runFrames();
+        assertEquals(1, notifications.size());
+
+        controller.update(1, "Title", "Artist", 180_000, null, true);
+        runFrames();
+        assertEquals("1 playing foreground", notifications.get(1));
+        assertEquals(2, metadata.size());
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class PlaybackOrderTest {
+
+    private static PlaybackOrder orderAt(int size, int position, int repeatMode) {
+        PlaybackOrder order = new PlaybackOrder(size, new Random(7));
+        order.setPosition(position);
+        order.setRepeatMode(repeatMode);
+        return order;
+    }
+
+    @Test
+    public void repeatAllWrapsAtTheEnd() {
+        PlaybackOrder order = orderAt(3, 1, PlaybackOrder.REPEAT_MODE_ALL);
+        assertEquals(2, order.peekNext(false));
+        order.setPosition(2);
+        assertEquals(0, order.peekNext(false));
+        assertEquals(0, order.peekNext(true));
+    }
+
+    @Test
+    public void repeatOffStopsAtTheEndButSkipWraps() {
+        PlaybackOrder order = orderAt(3, 2, PlaybackOrder.REPEAT_MODE_OFF);
+        assertEquals(-1, order.peekNext(false));
+        assertEquals(0, order.peekNext(true));
+        order.setPosition(0);
+        assertEquals(1, order.peekNext(false));
+    }
+
+    @Test
+    public void repeatOneReplaysUnlessUserSkips() {
+        PlaybackOrder order = orderAt(3, 1, PlaybackOrder.REPEAT_MODE_ONE);
+        assertEquals(1, order.peekNext(false));
+        assertEquals(2, order.peekNext(true));
+        order.setPosition(2);
+        assertEquals(2, order.peekNext(false));
+        assertEquals(0, order.peekNext(true));
+    }
+
+    @Test
+    public void cycleRepeatModeVisitsAllModes() {
+        PlaybackOrder order = orderAt(1, 0, PlaybackOrder.REPEAT_MODE_ALL);
+        assertEquals(PlaybackOrder.REPEAT_MODE_OFF, order.cycleRepeatMode());
+        assertEquals(PlaybackOrder.REPEAT_MODE_ONE, order.cycleRepeatMode());
+        assertEquals(PlaybackOrder.REPEAT_MODE_ALL, order.cycleRepeatMode());
+        order.setRepeatMode(-1);
+        assertEquals(PlaybackOrder.REPEAT_MODE_ALL, order.getRepeatMode());
+    }
+
+    @Test
+    public void previousWrapsToTheLastPosition() {
+        PlaybackOrder order = orderAt(4, 0, PlaybackOrder.REPEAT_MODE_OFF);
+        assertEquals(3, order.peekPrevious());
+        order.setPosition(2);
+        assertEquals(1, order.peekPrevious());
+    }
+
+    @Test
+    public void shuffleStartsAtCurrentSongAndVisitsEverySongOnce() {
+        int size = 1_000;
+        PlaybackOrder order = orderAt(size, 437, PlaybackOrder.REPEAT_MODE_OFF);
+        order.toggleShuffle();
+
+        assertTrue(order.isShuffleOn());
+        assertEquals(0, order.getPosition());
+        assertEquals(437, order.getCurrentIndex());
+
+        boolean[] seen = new boolean[size];
+        int visited = 0;
+        for (int position = order.getPosition(); position >= 0; position = order.peekNext(false)) {
+            order.setPosition(position);
+            int index = order.getCurrentIndex();
+            assertFalse(seen[index]);
+            seen[index] = true;
+            visited++;
+        }
+        assertEquals(size, visited);
+    }
+
+    @Test
+    public void shuffleOffReturnsToTheSameSongInBaseOrder() {
+        PlaybackOrder order = orderAt(50, 10, PlaybackOrder.REPEAT_MODE_ALL);
+        order.toggleShuffle();
+        order.setPosition(order.peekNext(true));
+        order.setPosition(order.peekNext(true));
+        int playing = order.getCurrentIndex();
+
+        order.toggleShuffle();
+
+        assertFalse(order.isShuffleOn());
+        assertEquals(playing, order.getPosition());
+        assertEquals(playing, order.getCurrentIndex());
+        assertNull(order.getShuffleOrder());
+    }
+
+    @Test
+    public void positionsAndIndicesStayInverse() {
+        PlaybackOrder order = orderAt(200, 5, PlaybackOrder.REPEAT_MODE_ALL);
+        for (int round = 0; round < 10; round++) {
+            order.toggleShuffle();
+            order.setPosition(order.peekNext(true));
+            for (int position = 0; position < order.size(); position++) {
+                assertEquals(position, order.positionOf(order.indexAt(position)));
+            }
+        }
+    }
+
+    @Test
+    public void restoreReproducesSavedShuffle() {
+        PlaybackOrder original = orderAt(100, 30, PlaybackOrder.REPEAT_MODE_ONE);
+        original.toggleShuffle();
+        original.setPosition(17);
+        int[] saved = original.getShuffleOrder();
+
+        PlaybackOrder restored = PlaybackOrder.restore(100, saved, 17, new Random(99));
+
+        assertTrue(restored.isShuffleOn());
+        assertEquals(17, restored.getPosition());
+        assertEquals(original.getCurrentIndex(), restored.getCurrentIndex());
+        assertArrayEquals(saved, restored.getShuffleOrder());
+        restored.toggleShuffle();
+        assertEquals(original.getCurrentIndex(), restored.getPosition());
+    }
+
+    @Test
+    public void emptyQueueHasNothingToPlay() {
+        PlaybackOrder order = new PlaybackOrder(0, new Random());
+        order.toggleShuffle();
+        assertFalse(order.isShuffleOn());
+        assertEquals(-1, order.peekNext(true));
+        assertEquals(-1, order.peekPrevious());
+        assertEquals(-1, order.getCurrentIndex());
+    }
+
+    @Test
+    public void shuffleTurnedBackOnDrawsANewOrder() {
+        PlaybackOrder order = orderAt(200, 5, PlaybackOrder.REPEAT_MODE_ALL);
+        order.toggleShuffle();
+        int[] first = order.getShuffleOrder();
+        order.toggleShuffle();
+
+        order.toggleShuffle();
+
+        int[] second = order.getShuffleOrder();
+        assertEquals(5, order.getCurrentIndex());
+        assertEquals(5, second[0]);
+        assertFalse(Arrays.equals(first, second));
+    }
+
+    @Test
+    public void shuffleWithNothingPlayingLeavesTheCursorCleared() {
+        PlaybackOrder order = new PlaybackOrder(10, new Random(7));
+        order.toggleShuffle();
+
+        assertTrue(order.isShuffleOn());
+        assertFalse(order.hasCurrent());
+        assertEquals(0, order.peekNext(false));
+
+        order.toggleShuffle();
+        assertFalse(order.hasCurrent());
+    }
+
+    // Edits made while shuffle is off are not mirrored into a permutation nobody uses.
+    @Test
+    public void editsWhileUnshuffledStayInBaseOrder() {
+        PlaybackOrder order = orderAt(5, 2, PlaybackOrder.REPEAT_MODE_ALL);
+        order.toggleShuffle();
+        order.toggleShuffle();
+        order.insert(5, 5);
+        order.move(0, 5);
+        order.remove(1);
+
+        order.toggleShuffle();
+        boolean[] seen = new boolean[order.size()];
+        for (int position = 0; position < order.size(); position++) {
+            int index = order.indexAt(position);
+            assertFalse(seen[index]);
+            seen[index] = true;
+            assertEquals(position, order.positionOf(index));
+        }
+    }
+}
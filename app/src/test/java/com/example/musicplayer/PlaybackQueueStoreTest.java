@@ -0,0 +1,199 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+public class PlaybackQueueStoreTest {
+
+    private static final int QUEUE_SIZE = 20_000;
+    private static final int REPEAT_ONE = 1;
+    private static final int REPEAT_ALL = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PlaybackQueueStore newStore() {
+        return new PlaybackQueueStore(new File(folder.getRoot(), "queue"), Runnable::run);
+    }
+
+    private static LongPredicate libraryOf(long[] ids) {
+        LongIntMap index = new LongIntMap(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+        }
+        return id -> index.get(id) != LongIntMap.NO_VALUE;
+    }
+
+    private static long[] sequentialIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) ids[i] = 1_000 + i * 7L;
+        return ids;
+    }
+
+    private static int[] randomPermutation(int count, long seed) {
+        List<Integer> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) values.add(i);
+        Collections.shuffle(values, new Random(seed));
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) order[i] = values.get(i);
+        return order;
+    }
+
+    @Test
+    public void restoresLargeShuffledQueueExactly() {
+        long[] ids = sequentialIds(QUEUE_SIZE);
+        int[] order = randomPermutation(QUEUE_SIZE, 42);
+        PlaybackQueueStore store = newStore();
+        store.saveQueue(ids);
+        store.saveOrder(order);
+        store.saveCursor(12_345, 61_000, REPEAT_ONE);
+
+        LongPredicate library = libraryOf(ids);
+        long start = System.nanoTime();
+        PlaybackQueueStore.Snapshot snapshot = newStore().load();
+        PlaybackQueueStore.RestoredQueue restored = snapshot.resolve(library);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertArrayEquals(ids, snapshot.getIds());
+        assertArrayEquals(order, restored.order);
+        assertEquals(12_345, restored.index);
+        assertEquals(61_000, restored.positionMs);
+        assertEquals(REPEAT_ONE, restored.repeatMode);
+        assertArrayEquals(ids, restored.ids);
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            assertEquals(ids[order[i]], restored.idAt(i));
+        }
+        assertTrue("load and resolve took " + elapsedMs + " ms", elapsedMs < 1_000);
+    }
+
+    @Test
+    public void cursorUpdatesDoNotRewriteTheQueue() throws Exception {
+        File dir = new File(folder.getRoot(), "queue");
+        PlaybackQueueStore store = new PlaybackQueueStore(dir, Runnable::run);
+        store.saveQueue(sequentialIds(QUEUE_SIZE));
+        File queueFile = new File(dir, PlaybackQueueStore.QUEUE_FILE);
+        byte[] before = Files.readAllBytes(queueFile.toPath());
+        long modified = queueFile.lastModified();
+
+        for (int i = 0; i < 100; i++) {
+            store.saveCursor(i, i * 1000, REPEAT_ALL);
+        }
+
+        assertEquals(modified, queueFile.lastModified());
+        assertArrayEquals(before, Files.readAllBytes(queueFile.toPath()));
+        assertTrue(new File(dir, PlaybackQueueStore.CURSOR_FILE).length() < 64);
+        assertEquals(99, newStore().load().getIndex());
+    }
+
+    @Test
+    public void newQueueDropsStaleShuffleAndCursor() {
+        PlaybackQueueStore store = newStore();
+        store.saveQueue(sequentialIds(10));
+        store.saveOrder(randomPermutation(10, 1));
+        store.saveCursor(7, 5_000, REPEAT_ALL);
+
+        store.saveQueue(sequentialIds(4));
+
+        PlaybackQueueStore.Snapshot snapshot = newStore().load();
+        assertEquals(4, snapshot.getIds().length);
+        assertNull(snapshot.getOrder());
+        assertEquals(0, snapshot.getIndex());
+        assertEquals(0, snapshot.getPositionMs());
+    }
+
+    @Test
+    public void cursorFromOlderQueueIsIgnoredAfterCrash() throws Exception {
+        File dir = new File(folder.getRoot(), "queue");
+        PlaybackQueueStore store = new PlaybackQueueStore(dir, Runnable::run);
+        store.saveQueue(sequentialIds(10));
+        store.saveCursor(7, 5_000, REPEAT_ALL);
+        byte[] oldCursor = Files.readAllBytes(new File(dir, PlaybackQueueStore.CURSOR_FILE).toPath());
+
+        store.saveQueue(sequentialIds(10));
+        Files.write(new File(dir, PlaybackQueueStore.CURSOR_FILE).toPath(), oldCursor);
+
+        assertEquals(0, newStore().load().getIndex());
+    }
+
+    @Test
+    public void truncatedQueueFileLoadsAsNothing() throws Exception {
+        File dir = new File(folder.getRoot(), "queue");
+        new PlaybackQueueStore(dir, Runnable::run).saveQueue(sequentialIds(100));
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, PlaybackQueueStore.QUEUE_FILE), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        assertNull(newStore().load());
+    }
+
+    @Test
+    public void missingSongsAreDroppedAndCursorMovesForward() {
+        long[] ids = {10, 20, 30, 40, 50};
+        PlaybackQueueStore store = newStore();
+        store.saveQueue(ids);
+        store.saveOrder(new int[]{4, 2, 0, 3, 1});
+        store.saveCursor(1, 9_000, REPEAT_ALL);
+
+        LongPredicate library = libraryOf(new long[]{10, 20, 40, 50});
+        PlaybackQueueStore.RestoredQueue restored = newStore().load().resolve(library);
+
+        List<Long> queueIds = new ArrayList<>();
+        for (int i = 0; i < restored.ids.length; i++) queueIds.add(restored.idAt(i));
+        assertEquals(Arrays.asList(50L, 10L, 40L, 20L), queueIds);
+        assertArrayEquals(new long[]{10, 20, 40, 50}, restored.ids);
+        assertEquals(1, restored.index);
+        assertEquals(0, restored.positionMs);
+    }
+
+    @Test
+    public void unshuffledQueueKeepsPositionWhenCurrentSongSurvives() {
+        PlaybackQueueStore store = newStore();
+        store.saveQueue(new long[]{1, 2, 3});
+        store.saveCursor(2, 4_200, REPEAT_ONE);
+
+        PlaybackQueueStore.RestoredQueue restored = newStore().load().resolve(libraryOf(new long[]{2, 3}));
+
+        assertNull(restored.order);
+        assertArrayEquals(new long[]{2, 3}, restored.ids);
+        assertEquals(1, restored.index);
+        assertEquals(4_200, restored.positionMs);
+    }
+
+    @Test
+    public void burstOfEditsIsWrittenOncePerFile() {
+        File dir = new File(folder.getRoot(), "queue");
+        List<Runnable> queued = new ArrayList<>();
+        PlaybackQueueStore store = new PlaybackQueueStore(dir, queued::add);
+        for (int i = 1; i <= 50; i++) {
+            store.saveQueue(sequentialIds(i));
+            store.saveOrder(randomPermutation(i, i));
+            store.saveCursor(i - 1, i * 100, REPEAT_ALL);
+        }
+        // Turning shuffle off after the last order was queued must still delete the file.
+        store.saveOrder(null);
+        store.saveCursor(7, 1_234, REPEAT_ONE);
+        assertEquals(3, queued.size());
+
+        for (Runnable write : queued) write.run();
+        assertFalse(new File(dir, PlaybackQueueStore.ORDER_FILE).exists());
+
+        PlaybackQueueStore.Snapshot snapshot = newStore().load();
+        assertArrayEquals(sequentialIds(50), snapshot.getIds());
+        assertNull(snapshot.getOrder());
+        assertEquals(7, snapshot.getIndex());
+        assertEquals(1_234, snapshot.getPositionMs());
+        assertEquals(REPEAT_ONE, snapshot.getRepeatMode());
+    }
+}
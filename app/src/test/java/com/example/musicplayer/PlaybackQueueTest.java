@@ -0,0 +1,148 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PlaybackQueueTest {
+
+    private static PlaybackQueue queueOf(long... ids) {
+        PlaybackQueue queue = new PlaybackQueue(new Random(3));
+        queue.setQueue(ids, 0);
+        return queue;
+    }
+
+    private static List<Long> playOrder(PlaybackQueue queue) {
+        List<Long> ids = new ArrayList<>(queue.size());
+        for (int i = 0; i < queue.size(); i++) ids.add(queue.getIdAt(i));
+        return ids;
+    }
+
+    // Reference model: a plain list in play order.
+    private static List<Long> listOf(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) list.add(id);
+        return list;
+    }
+
+    @Test
+    public void insertMoveAndRemoveInPlayOrder() {
+        PlaybackQueue queue = queueOf(10, 20, 30, 40);
+        queue.setPosition(2);
+
+        queue.insert(1, 15);
+        assertEquals(listOf(10, 15, 20, 30, 40), playOrder(queue));
+        assertEquals(30, queue.getCurrentId());
+
+        queue.move(4, 0);
+        assertEquals(listOf(40, 10, 15, 20, 30), playOrder(queue));
+        assertEquals(30, queue.getCurrentId());
+
+        assertEquals(10, queue.remove(1));
+        assertEquals(listOf(40, 15, 20, 30), playOrder(queue));
+        assertEquals(3, queue.getPosition());
+        assertEquals(30, queue.getCurrentId());
+    }
+
+    @Test
+    public void playNextQueuesAfterTheCurrentSong() {
+        PlaybackQueue queue = queueOf(1, 2, 3);
+        queue.setPosition(1);
+        queue.playNext(99);
+        assertEquals(listOf(1, 2, 99, 3), playOrder(queue));
+        assertEquals(2, queue.peekNext(false));
+    }
+
+    @Test
+    public void playNextWhileShuffledAndAfterUnshuffle() {
+        PlaybackQueue queue = queueOf(1, 2, 3, 4, 5);
+        queue.setPosition(2);
+        queue.toggleShuffle();
+        queue.playNext(99);
+
+        assertEquals(3, queue.getCurrentId());
+        assertEquals(99, queue.getIdAt(queue.peekNext(true)));
+        assertEquals(listOf(1, 2, 3, 4, 5, 99), listOf(queue.getIds()));
+
+        queue.toggleShuffle();
+        assertEquals(3, queue.getCurrentId());
+        assertEquals(listOf(1, 2, 3, 4, 5, 99), playOrder(queue));
+    }
+
+    @Test
+    public void removingTheCurrentSongMovesToTheFollowingOne() {
+        PlaybackQueue queue = queueOf(1, 2, 3);
+        queue.setPosition(1);
+        queue.remove(1);
+        assertEquals(3, queue.getCurrentId());
+        queue.remove(1);
+        assertFalse(queue.hasCurrent());
+        assertEquals(PlaybackQueue.NO_SONG, queue.getCurrentId());
+    }
+
+    @Test
+    public void repeatModeSurvivesANewQueue() {
+        PlaybackQueue queue = queueOf(1, 2);
+        queue.setRepeatMode(PlaybackOrder.REPEAT_MODE_ONE);
+        queue.toggleShuffle();
+        queue.setQueue(new long[]{7, 8, 9}, 0);
+        assertEquals(PlaybackOrder.REPEAT_MODE_ONE, queue.getRepeatMode());
+        assertFalse(queue.isShuffleOn());
+        assertEquals(0, queue.peekNext(false));
+    }
+
+    @Test
+    public void restoreRoundTripsIdsAndShuffle() {
+        PlaybackQueue queue = queueOf(5, 6, 7, 8, 9, 10);
+        queue.setPosition(3);
+        queue.toggleShuffle();
+        queue.move(4, 1);
+        queue.setPosition(1);
+
+        PlaybackQueue restored = new PlaybackQueue(new Random(11));
+        restored.restore(queue.getIds(), queue.getShuffleOrder(), queue.getPosition());
+
+        assertEquals(playOrder(queue), playOrder(restored));
+        assertEquals(queue.getCurrentId(), restored.getCurrentId());
+    }
+
+    // Random edits checked against a plain list, with shuffle toggled along the way.
+    @Test
+    public void randomEditsMatchListModel() {
+        Random random = new Random(2024);
+        PlaybackQueue queue = new PlaybackQueue(new Random(5));
+        List<Long> model = new ArrayList<>();
+        long nextId = 1;
+        for (int step = 0; step < 5_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4 || model.isEmpty()) {
+                int position = random.nextInt(model.size() + 1);
+                queue.insert(position, nextId);
+                model.add(position, nextId++);
+            } else if (op < 6) {
+                int position = random.nextInt(model.size());
+                assertEquals((long) model.remove(position), queue.remove(position));
+            } else if (op < 8) {
+                int from = random.nextInt(model.size());
+                int to = random.nextInt(model.size());
+                queue.move(from, to);
+                model.add(to, model.remove(from));
+            } else if (op == 8) {
+                queue.setPosition(random.nextInt(model.size()));
+                long current = queue.getCurrentId();
+                queue.toggleShuffle();
+                model = playOrder(queue);
+                assertEquals(current, queue.getCurrentId());
+            } else {
+                queue.setPosition(random.nextInt(model.size()));
+            }
+            assertEquals(model.size(), queue.size());
+            if (step % 100 == 0) assertEquals(model, playOrder(queue));
+        }
+        assertEquals(model, playOrder(queue));
+    }
+}
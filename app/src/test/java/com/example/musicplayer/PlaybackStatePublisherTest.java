@@ -0,0 +1,68 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PlaybackStatePublisherTest {
+
+    private final List<PlaybackState> states = new ArrayList<>();
+    private final List<Integer> positions = new ArrayList<>();
+
+    private final PlaybackStatePublisher publisher = new PlaybackStatePublisher(new PlaybackStatePublisher.Sink() {
+        @Override
+        public void onStateChanged(PlaybackState state) {
+            states.add(state);
+        }
+
+        @Override
+        public void onPositionChanged(int currentPosition) {
+            positions.add(currentPosition);
+        }
+    });
+
+    @Test
+    public void positionTicksDoNotRepublishState() {
+        assertTrue(publisher.publish(1, true, 0, 180_000, "Title", "Artist"));
+        for (int second = 1; second <= 60; second++) {
+            assertFalse(publisher.publish(1, true, second * 1000, 180_000, "Title", "Artist"));
+        }
+
+        assertEquals(1, states.size());
+        assertEquals(60, positions.size());
+        assertEquals(60_000, (int) positions.get(59));
+    }
+
+    @Test
+    public void unchangedTickIsDropped() {
+        publisher.publish(1, false, 5000, 180_000, "Title", "Artist");
+        publisher.publish(1, false, 5000, 180_000, "Title", "Artist");
+
+        assertEquals(1, states.size());
+        assertTrue(positions.isEmpty());
+    }
+
+    @Test
+    public void playStateOrTrackChangeRepublishesState() {
+        publisher.publish(1, true, 1000, 180_000, "Title", "Artist");
+        assertTrue(publisher.publish(1, false, 2000, 180_000, "Title", "Artist"));
+        assertTrue(publisher.publish(2, false, 0, 180_000, "Title", "Artist"));
+        assertTrue(publisher.publish(3, false, 0, 200_000, "Other", "Artist"));
+
+        assertEquals(4, states.size());
+        assertFalse(states.get(1).isPlaying());
+        assertEquals("Other", states.get(3).getTitle());
+    }
+
+    @Test
+    public void resetForcesFullState() {
+        publisher.publish(1, true, 1000, 180_000, "Title", "Artist");
+        publisher.reset();
+
+        assertTrue(publisher.publish(1, true, 2000, 180_000, "Title", "Artist"));
+        assertEquals(2, states.size());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PlaylistPositionsTest {
+
+    @Test
+    public void appendsStepPastTheLastKey() {
+        assertEquals(PlaylistPositions.STEP, PlaylistPositions.after(null), 0);
+        assertEquals(4.0, PlaylistPositions.after(3.0), 0);
+    }
+
+    @Test
+    public void moveToEitherEndStepsPastTheNeighbour() {
+        assertEquals(0.0, PlaylistPositions.between(null, 1.0), 0);
+        assertEquals(6.0, PlaylistPositions.between(5.0, null), 0);
+        assertEquals(PlaylistPositions.STEP, PlaylistPositions.between(null, null), 0);
+    }
+
+    @Test
+    public void repeatedMovesIntoTheSameGapStayOrdered() {
+        double before = 1.0;
+        double after = 2.0;
+        int splits = 0;
+        while (true) {
+            double middle = PlaylistPositions.between(before, after);
+            if (Double.isNaN(middle)) {
+                break;
+            }
+            assertTrue(middle > before && middle < after);
+            after = middle;
+            splits++;
+        }
+        // Dozens of moves into one spot before a renumber is needed.
+        assertTrue(splits >= 25);
+    }
+
+    @Test
+    public void renumberedKeysLeaveWholeSteps() {
+        assertEquals(1.0, PlaylistPositions.atIndex(0), 0);
+        assertEquals(1.5, PlaylistPositions.between(PlaylistPositions.atIndex(0), PlaylistPositions.atIndex(1)), 0);
+    }
+}
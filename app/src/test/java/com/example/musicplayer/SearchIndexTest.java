@@ -0,0 +1,111 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SearchIndexTest {
+
+    private static final int LIBRARY_SIZE = 100_000;
+
+    private static LibraryStore libraryOf(String[][] titleAndArtist) {
+        LibraryStore.Builder builder = new LibraryStore.Builder(titleAndArtist.length);
+        for (int i = 0; i < titleAndArtist.length; i++) {
+            builder.add(100 + i, titleAndArtist[i][0], titleAndArtist[i][1], 1_000, 0);
+        }
+        return builder.build();
+    }
+
+    private static long[] idsOf(SearchIndex.Result result) {
+        long[] ids = new long[result.rows.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = result.library.getId(result.rows[i]);
+        }
+        return ids;
+    }
+
+    @Test
+    public void matchesWordPrefixesOfTitleAndArtistIgnoringCaseAndAccents() {
+        LibraryStore library = libraryOf(new String[][]{
+                {"Blue Monday", "New Order"},
+                {"Beyonc\u00e9 Medley", "Various"},
+                {"Love Will Tear Us Apart", "Joy Division"},
+                {"True Faith", "New Order"},
+        });
+        SearchIndex index = SearchIndex.build(library, null);
+
+        assertArrayEquals(new long[]{100}, idsOf(index.search("blue", 10)));
+        assertArrayEquals(new long[]{101}, idsOf(index.search("BEYONCE", 10)));
+        assertArrayEquals(new long[]{103}, idsOf(index.search("faith new", 10)));
+        assertArrayEquals(new long[]{102}, idsOf(index.search("tear ap", 10)));
+        assertEquals(0, index.search("onday", 10).rows.length);
+        assertEquals(0, index.search("  ", 10).rows.length);
+    }
+
+    @Test
+    public void titleHitsRankAboveArtistHits() {
+        LibraryStore library = libraryOf(new String[][]{
+                {"Something", "Moon Safari"},
+                {"Harvest Moon", "Neil Young"},
+                {"Moonlight", "Someone"},
+                {"Moon", "Someone"},
+        });
+        SearchIndex index = SearchIndex.build(library, null);
+
+        // Exact first title word, then first-word prefix, then a later title word, then the artist.
+        assertArrayEquals(new long[]{103, 102, 101, 100}, idsOf(index.search("moon", 10)));
+        assertArrayEquals(new long[]{103, 102}, idsOf(index.search("moon", 2)));
+    }
+
+    @Test
+    public void rebuildFollowsLibraryChanges() {
+        StringDictionary artists = new StringDictionary();
+        LibraryStore before = new LibraryStore.Builder(2, artists)
+                .add(1, "Alpha", "Shared", 1_000, 0)
+                .add(2, "Beta", "Shared", 1_000, 0)
+                .build();
+        SearchIndex first = SearchIndex.build(before, null);
+        assertEquals(2, first.search("shared", 10).rows.length);
+
+        LibraryStore after = new LibraryStore.Builder(2, artists)
+                .add(2, "Beta", "Shared", 1_000, 0)
+                .add(3, "Gamma", "Newcomer", 1_000, 0)
+                .build();
+        SearchIndex second = SearchIndex.build(after, first);
+
+        assertArrayEquals(new long[]{2}, idsOf(second.search("shared", 10)));
+        assertArrayEquals(new long[]{3}, idsOf(second.search("newcomer", 10)));
+        assertEquals(0, second.search("alpha", 10).rows.length);
+    }
+
+    @Test
+    public void largeLibraryQueriesAreFast() {
+        Random random = new Random(5);
+        String[] vocabulary = new String[5_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = Long.toString(random.nextLong() & Long.MAX_VALUE, 36).substring(0, 3 + random.nextInt(5));
+        }
+        LibraryStore.Builder builder = new LibraryStore.Builder(LIBRARY_SIZE);
+        for (int i = 0; i < LIBRARY_SIZE; i++) {
+            String title = vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)];
+            builder.add(i, title, "Artist " + random.nextInt(2_000), 1_000, 0);
+        }
+        SearchIndex index = SearchIndex.build(builder.build(), null);
+
+        String[] queries = {"a", "ar", "artist 12", vocabulary[0], vocabulary[1].substring(0, 2), "zzzz"};
+        for (String query : queries) {
+            index.search(query, 500);
+        }
+        long start = System.nanoTime();
+        int rounds = 20;
+        for (int round = 0; round < rounds; round++) {
+            for (String query : queries) {
+                index.search(query, 500);
+            }
+        }
+        double perQueryMs = (System.nanoTime() - start) / 1e6 / (rounds * queries.length);
+        assertTrue("query took " + perQueryMs + " ms", perQueryMs < 50);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SessionRestorerTest {
+
+    private static final long PREPARE_MS = 300;
+
+    // Prepares on its own thread after a delay, like MediaPlayer.prepareAsync() on a slow file.
+    private static class SlowPlayer implements SessionRestorer.Player {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final List<SessionRestorer.PrepareCallback> pending = Collections.synchronizedList(new ArrayList<>());
+        final boolean autoComplete;
+
+        SlowPlayer(boolean autoComplete) {
+            this.autoComplete = autoComplete;
+        }
+
+        @Override
+        public void prepareAsync(Song song, SessionRestorer.PrepareCallback callback) {
+            events.add("prepare:" + song.getId());
+            if (!autoComplete) {
+                pending.add(callback);
+                return;
+            }
+            new Thread(() -> {
+                try {
+                    Thread.sleep(PREPARE_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add("prepared:" + song.getId());
+                callback.onPrepared();
+            }).start();
+        }
+
+        @Override
+        public void seekTo(int positionMs) {
+            events.add("seek:" + positionMs);
+        }
+    }
+
+    private static Song song(long id) {
+        return new Song(id, "Song " + id, "Artist", "content://" + id, 1000, 0);
+    }
+
+    @Test
+    public void restoreReturnsBeforePrepareAndSeeksAfterIt() throws Exception {
+        SlowPlayer player = new SlowPlayer(true);
+        SessionRestorer restorer = new SessionRestorer(player);
+        CountDownLatch restored = new CountDownLatch(1);
+        List<Integer> positions = Collections.synchronizedList(new ArrayList<>());
+
+        long start = System.nanoTime();
+        restorer.restore(song(7), 42_000, (song, position) -> {
+            positions.add(position);
+            restored.countDown();
+        });
+        long callerMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(restorer.isRestoring());
+        assertTrue("restore() blocked the caller for " + callerMs + " ms", callerMs < PREPARE_MS / 2);
+        assertTrue(restored.await(5, TimeUnit.SECONDS));
+        assertFalse(restorer.isRestoring());
+        assertEquals(Collections.singletonList(42_000), positions);
+        assertEquals(List.of("prepare:7", "prepared:7", "seek:42000"), new ArrayList<>(player.events));
+    }
+
+    @Test
+    public void cancelSuppressesLateCallback() {
+        SlowPlayer player = new SlowPlayer(false);
+        SessionRestorer restorer = new SessionRestorer(player);
+        List<Song> restored = new ArrayList<>();
+
+        restorer.restore(song(1), 5_000, (song, position) -> restored.add(song));
+        restorer.cancel();
+        assertFalse(restorer.isRestoring());
+
+        player.pending.get(0).onPrepared();
+        assertTrue(restored.isEmpty());
+        assertFalse(player.events.contains("seek:5000"));
+    }
+
+    @Test
+    public void newerRestoreWins() {
+        SlowPlayer player = new SlowPlayer(false);
+        SessionRestorer restorer = new SessionRestorer(player);
+        List<Long> restored = new ArrayList<>();
+
+        restorer.restore(song(1), 1_000, (song, position) -> restored.add(song.getId()));
+        restorer.restore(song(2), 2_000, (song, position) -> restored.add(song.getId()));
+
+        player.pending.get(0).onPrepared();
+        assertTrue(restorer.isRestoring());
+        player.pending.get(1).onPrepared();
+
+        assertEquals(Collections.singletonList(2L), restored);
+        assertFalse(player.events.contains("seek:1000"));
+        assertFalse(restorer.isRestoring());
+    }
+
+    @Test
+    public void errorClearsRestoringWithoutNotifying() {
+        SlowPlayer player = new SlowPlayer(false);
+        SessionRestorer restorer = new SessionRestorer(player);
+        List<Song> restored = new ArrayList<>();
+
+        restorer.restore(song(3), 0, (song, position) -> restored.add(song));
+        player.pending.get(0).onError(new java.io.IOException("missing file"));
+
+        assertFalse(restorer.isRestoring());
+        assertTrue(restored.isEmpty());
+    }
+}
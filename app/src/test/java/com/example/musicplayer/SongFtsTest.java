@@ -0,0 +1,27 @@
+package com.example.musicplayer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SongFtsTest {
+
+    @Test
+    public void everyWordBecomesAPrefixTerm() {
+        assertEquals("harvest* mo*", SongFts.matchQuery("Harvest Mo"));
+        assertEquals("beyonce*", SongFts.matchQuery("Beyonc\u00e9"));
+    }
+
+    @Test
+    public void operatorsAndQuotesAreStripped() {
+        assertEquals("a* or* b*", SongFts.matchQuery("a OR \"b\""));
+        assertEquals("title* moon*", SongFts.matchQuery("title:moon*"));
+        assertEquals("x*", SongFts.matchQuery("-x"));
+    }
+
+    @Test
+    public void blankInputHasNoQuery() {
+        assertNull(SongFts.matchQuery(null));
+        assertNull(SongFts.matchQuery(" \t-* "));
+    }
+}
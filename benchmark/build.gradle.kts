@@ -0,0 +1,51 @@
+// JVM-only JMH harness for the app's pure-Java hot paths. The classes under test are compiled straight
+// from the app module's sources, so the benchmarks always measure the code that ships.
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/musicplayer/CancellationToken.java",
+                "com/example/musicplayer/DurationFormatter.java",
+                "com/example/musicplayer/ExecutorIoScheduler.java",
+                "com/example/musicplayer/IoScheduler.java",
+                "com/example/musicplayer/LibraryStore.java",
+                "com/example/musicplayer/LongIntMap.java",
+                "com/example/musicplayer/MeteredExecutor.java",
+                "com/example/musicplayer/PlaybackOrder.java",
+                "com/example/musicplayer/PlaybackQueue.java",
+                "com/example/musicplayer/SearchIndex.java",
+                "com/example/musicplayer/Song.java",
+                "com/example/musicplayer/SongRow.java",
+                "com/example/musicplayer/StringDictionary.java",
+            )
+        }
+    }
+}
+
+// Song carries Room annotations and an android.net.Uri accessor; neither is touched at run time,
+// so both are only needed to compile.
+dependencies {
+    compileOnly(libs.android.stub)
+    compileOnly(libs.room.common)
+    jmhCompileOnly(libs.android.stub)
+    jmhCompileOnly(libs.room.common)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
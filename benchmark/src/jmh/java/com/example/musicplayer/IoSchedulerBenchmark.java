@@ -0,0 +1,86 @@
+package com.example.musicplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Fan-out of blocking chunk queries and how quickly an abandoned scan lets go of its thread.
+// Add -p scheduler=bounded,virtual on a Java 21 JVM to compare against virtual threads.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IoSchedulerBenchmark {
+
+    @Param({"bounded"})
+    public String scheduler;
+
+    @Param({"20"})
+    public int chunks;
+
+    private IoScheduler io;
+    private List<Callable<Integer>> queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        io = "virtual".equals(scheduler)
+                ? ExecutorIoScheduler.virtualThreads()
+                : ExecutorIoScheduler.bounded("bench-io", 4);
+        queries = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            // Stand-in for one 500-id SQLite query.
+            queries.add(() -> {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                return chunk;
+            });
+        }
+    }
+
+    @Benchmark
+    public List<Integer> fanOutBlockingChunks() throws Exception {
+        return io.invokeAll(CancellationToken.NONE, queries);
+    }
+
+    // A scan that checks its token between rows, cancelled 1 ms in; the score is the time until it returns.
+    @Benchmark
+    public boolean abandonScan() throws Exception {
+        CancellationToken token = new CancellationToken();
+        AtomicBoolean started = new AtomicBoolean();
+        CountDownLatch exited = new CountDownLatch(1);
+        Future<Long> scan = io.submit(token, () -> {
+            started.set(true);
+            try {
+                long rows = 0;
+                while (!token.isCancelled() && rows < Long.MAX_VALUE) {
+                    rows++;
+                }
+                token.throwIfCancelled();
+                return rows;
+            } finally {
+                exited.countDown();
+            }
+        });
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        token.cancel();
+        // The future is done at cancel(); wait for a started task body to give the thread back.
+        if (started.get()) {
+            exited.await();
+        }
+        return scan.isCancelled();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.musicplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Library-sized hot paths: building Song objects from a cursor, resolving a playlist's ids, shuffling the
+// library as a queue, and formatting every duration as the song list binds it. Baselines keep the
+// implementations these paths replaced, so a regression shows up as a shrinking gap.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LibraryBenchmark {
+
+    private static final int PLAYLIST_SIZE = 1_000;
+
+    @Param({"1000", "10000", "100000"})
+    public int librarySize;
+
+    private SyntheticLibrary library;
+    private List<Song> songs;
+    private LibraryStore store;
+    private List<Long> playlistIds;
+    private final char[] durationBuffer = new char[DurationFormatter.MAX_LENGTH];
+
+    @Setup
+    public void setUp() {
+        library = new SyntheticLibrary(librarySize, 7);
+        songs = library.songs();
+        store = LibraryStore.fromSongs(songs);
+        playlistIds = library.playlistIds(PLAYLIST_SIZE, 11);
+    }
+
+    // Same column lookups, per-row reads and Song construction as MediaStoreLibrarySource.queryChangedSince.
+    @Benchmark
+    public List<Song> mapCursorToSongs() {
+        SyntheticLibrary.RowCursor cursor = library.cursor();
+        List<Song> out = new ArrayList<>();
+        long watermark = 0;
+        if (cursor.moveToFirst()) {
+            int idColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.ID);
+            int titleColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.TITLE);
+            int artistColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.ARTIST);
+            int durationColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.DURATION);
+            int albumIdColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.ALBUM_ID);
+            int watermarkIndex = cursor.getColumnIndexOrThrow(SyntheticLibrary.GENERATION_MODIFIED);
+            do {
+                long id = cursor.getLong(idColumn);
+                String title = cursor.getString(titleColumn);
+                String artist = cursor.getString(artistColumn);
+                long duration = cursor.getLong(durationColumn);
+                long albumId = cursor.getLong(albumIdColumn);
+                String contentUri = SyntheticLibrary.MEDIA_STORE_URI + "/" + String.valueOf(id);
+                out.add(new Song(id, title, artist, contentUri, duration, albumId));
+                watermark = Math.max(watermark, cursor.getLong(watermarkIndex));
+            } while (cursor.moveToNext());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public LibraryStore buildLibraryStore() {
+        return LibraryStore.fromSongs(songs);
+    }
+
+    // Playlist ids resolved to library rows through the store's id-to-row map.
+    @Benchmark
+    public int[] resolvePlaylist() {
+        int[] rows = new int[playlistIds.size()];
+        int count = 0;
+        for (int i = 0; i < rows.length; i++) {
+            int row = store.rowOf(playlistIds.get(i));
+            if (row >= 0) {
+                rows[count++] = row;
+            }
+        }
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    // MusicService.onPlaylistLoadRequest: ids are only checked against the store, no Songs are built.
+    @Benchmark
+    public long[] resolvePlaylistFromStore() {
+        long[] resolved = new long[playlistIds.size()];
+        int count = 0;
+        for (int i = 0; i < resolved.length; i++) {
+            long id = playlistIds.get(i);
+            if (store.contains(id)) {
+                resolved[count++] = id;
+            }
+        }
+        return count == resolved.length ? resolved : Arrays.copyOf(resolved, count);
+    }
+
+    // The per-id scan over the library that the store's id-to-row map replaced.
+    @Benchmark
+    public List<Song> resolvePlaylistLinearScanBaseline() {
+        List<Song> resolved = new ArrayList<>(playlistIds.size());
+        for (Long id : playlistIds) {
+            for (Song song : songs) {
+                if (song.getId() == id) {
+                    resolved.add(song);
+                    break;
+                }
+            }
+        }
+        return resolved;
+    }
+
+    // First shuffle of a fresh library queue: builds the permutation, then toggles.
+    @Benchmark
+    public long shuffleLibraryQueue() {
+        PlaybackOrder order = new PlaybackOrder(librarySize, new Random(3));
+        order.setPosition(librarySize / 2);
+        order.toggleShuffle();
+        return order.getCurrentIndex();
+    }
+
+    // MusicService.toggleShuffle before the permutation model: copy, remove, shuffle, re-add.
+    @Benchmark
+    public List<Song> shuffleLibraryQueueListBaseline() {
+        List<Song> queue = new ArrayList<>(songs);
+        Song current = queue.remove(librarySize / 2);
+        Collections.shuffle(queue, new Random(3));
+        queue.add(0, current);
+        return queue;
+    }
+
+    @Benchmark
+    public int formatAllDurations() {
+        int chars = 0;
+        for (int i = 0; i < songs.size(); i++) {
+            chars += DurationFormatter.format(songs.get(i).getDuration(), durationBuffer);
+        }
+        return chars;
+    }
+
+    @Benchmark
+    public int formatAllDurationsStringFormatBaseline() {
+        int chars = 0;
+        for (int i = 0; i < songs.size(); i++) {
+            long duration = songs.get(i).getDuration();
+            chars += String.format("%d:%02d", (duration / 1000) / 60, (duration / 1000) % 60).length();
+        }
+        return chars;
+    }
+}
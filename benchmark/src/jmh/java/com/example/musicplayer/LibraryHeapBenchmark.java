@@ -0,0 +1,106 @@
+package com.example.musicplayer;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Heap retained by a loaded 50k-row library in each representation, reported as the retainedKiB
+// secondary metric. Event counters add up across iterations, so divide it by Cnt for KiB per load.
+// Each shot forces GCs around the load, so the time score is not meaningful here.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class LibraryHeapBenchmark {
+
+    private static final int LIBRARY_SIZE = 50_000;
+
+    private final SyntheticLibrary library = new SyntheticLibrary(LIBRARY_SIZE, 7);
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedKiB;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedKiB = 0;
+        }
+    }
+
+    // MediaStoreLibrarySource before dictionary encoding: every row keeps the cursor's own artist String.
+    @Benchmark
+    public Object songsWithCursorStrings(Heap heap) {
+        long before = usedHeap();
+        List<Song> songs = load(null);
+        heap.retainedKiB = (usedHeap() - before) / 1024;
+        return songs;
+    }
+
+    @Benchmark
+    public Object songsWithInternedArtists(Heap heap) {
+        long before = usedHeap();
+        List<Song> songs = load(new StringDictionary(256));
+        heap.retainedKiB = (usedHeap() - before) / 1024;
+        return songs;
+    }
+
+    // What the app keeps after loading: the columnar store, with the Song list dropped.
+    @Benchmark
+    public Object libraryStore(Heap heap) {
+        long before = usedHeap();
+        StringDictionary artists = new StringDictionary(256);
+        LibraryStore store = LibraryStore.fromSongs(load(artists), artists);
+        heap.retainedKiB = (usedHeap() - before) / 1024;
+        return store;
+    }
+
+    // Same per-row reads as MediaStoreLibrarySource.queryChangedSince.
+    private List<Song> load(StringDictionary artists) {
+        SyntheticLibrary.RowCursor cursor = library.cursor();
+        List<Song> out = new ArrayList<>(LIBRARY_SIZE);
+        if (cursor.moveToFirst()) {
+            int idColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.ID);
+            int titleColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.TITLE);
+            int artistColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.ARTIST);
+            int durationColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.DURATION);
+            int albumIdColumn = cursor.getColumnIndexOrThrow(SyntheticLibrary.ALBUM_ID);
+            do {
+                long id = cursor.getLong(idColumn);
+                String artist = cursor.getString(artistColumn);
+                if (artists != null) {
+                    artist = artists.intern(artist);
+                }
+                out.add(new Song(id, cursor.getString(titleColumn), artist,
+                        SyntheticLibrary.MEDIA_STORE_URI + "/" + id,
+                        cursor.getLong(durationColumn), cursor.getLong(albumIdColumn)));
+            } while (cursor.moveToNext());
+        }
+        return out;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
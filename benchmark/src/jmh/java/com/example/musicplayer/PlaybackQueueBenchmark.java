@@ -0,0 +1,111 @@
+package com.example.musicplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Queue edits on large queues. Paired operations (insert + remove, move + move back) keep the size stable
+// across invocations. The *ListBaseline benchmarks replay what MusicService did with List<Song> copies.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlaybackQueueBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean shuffled;
+
+    private PlaybackQueue queue;
+    private long[] ids;
+    private List<Long> list;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ids = new long[size];
+        list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids[i] = 1_000_000L + i;
+            list.add(ids[i]);
+        }
+        queue = new PlaybackQueue(new Random(42));
+        queue.setQueue(ids, size / 2);
+        position = size / 2;
+        if (shuffled) {
+            queue.toggleShuffle();
+        }
+    }
+
+    @Benchmark
+    public PlaybackQueue setQueue() {
+        queue.setQueue(ids, position);
+        return queue;
+    }
+
+    @Benchmark
+    public long insertAndRemoveMiddle() {
+        queue.insert(size / 3, 42L);
+        return queue.remove(size / 3);
+    }
+
+    @Benchmark
+    public long playNextAndRemove() {
+        int inserted = queue.playNext(42L);
+        return queue.remove(inserted);
+    }
+
+    @Benchmark
+    public int moveFarAndBack() {
+        queue.move(1, size - 2);
+        queue.move(size - 2, 1);
+        return queue.getPosition();
+    }
+
+    @Benchmark
+    public long toggleShuffleTwice() {
+        queue.toggleShuffle();
+        queue.toggleShuffle();
+        return queue.getCurrentId();
+    }
+
+    @Benchmark
+    public void walkQueueShuffled(Blackhole blackhole) {
+        if (!queue.isShuffleOn()) queue.toggleShuffle();
+        for (int i = 0; i < 1_000; i++) {
+            queue.setPosition(queue.peekNext(true));
+            blackhole.consume(queue.getCurrentId());
+        }
+    }
+
+    @Benchmark
+    public int toggleShuffleTwiceListBaseline() {
+        List<Long> original = new ArrayList<>(list);
+        List<Long> shuffled = new ArrayList<>(list);
+        Long current = shuffled.remove(position);
+        Collections.shuffle(shuffled);
+        shuffled.add(0, current);
+        List<Long> restored = new ArrayList<>(original);
+        return restored.indexOf(current);
+    }
+
+    @Benchmark
+    public Long insertAndRemoveMiddleListBaseline() {
+        list.add(size / 3, 42L);
+        return list.remove(size / 3);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.musicplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Per-keystroke search cost on a large library, against a contains() scan over every song. The scan
+// collects every match too, since ranking needs all of them before the top LIMIT can be cut.
+// One-letter queries match most of the library and are the worst case for the index.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    private static final int LIMIT = 500;
+
+    @Param({"100000"})
+    public int librarySize;
+
+    @Param({"t", "artist 4", "track 3f"})
+    public String query;
+
+    private List<Song> songs;
+    private LibraryStore store;
+    private SearchIndex index;
+
+    @Setup
+    public void setUp() {
+        songs = new SyntheticLibrary(librarySize, 7).songs();
+        store = LibraryStore.fromSongs(songs);
+        index = SearchIndex.build(store, null);
+    }
+
+    @Benchmark
+    public SearchIndex.Result search() {
+        return index.search(query, LIMIT);
+    }
+
+    @Benchmark
+    public List<Song> containsScanBaseline() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Song> matches = new ArrayList<>();
+        for (int i = 0; i < songs.size(); i++) {
+            Song song = songs.get(i);
+            if (song.getTitle().toLowerCase(Locale.ROOT).contains(needle)
+                    || song.getArtist().toLowerCase(Locale.ROOT).contains(needle)) {
+                matches.add(song);
+            }
+        }
+        return matches;
+    }
+
+    // Paid off the main thread whenever the library changes.
+    @Benchmark
+    public SearchIndex buildIndex() {
+        return SearchIndex.build(store, null);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.musicplayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic fake MediaStore contents. Rows are kept column-wise, like a CursorWindow, and read back
+// through RowCursor, which mirrors the android.database.Cursor calls the app's mapping loop makes.
+final class SyntheticLibrary {
+
+    static final String ID = "_id";
+    static final String TITLE = "title";
+    static final String ARTIST = "artist";
+    static final String DURATION = "duration";
+    static final String ALBUM_ID = "album_id";
+    static final String GENERATION_MODIFIED = "generation_modified";
+    static final String MEDIA_STORE_URI = "content://media/external/audio/media";
+
+    private static final String[] COLUMNS = {ID, TITLE, ARTIST, DURATION, ALBUM_ID, GENERATION_MODIFIED};
+
+    final int size;
+    final long[] ids;
+    final String[] titles;
+    final String[] artists;
+    final long[] durations;
+    final long[] albumIds;
+    final long[] generations;
+
+    SyntheticLibrary(int size, long seed) {
+        this.size = size;
+        Random random = new Random(seed);
+        int artistCount = Math.max(1, size / 12);
+        String[] artistNames = new String[artistCount];
+        for (int i = 0; i < artistCount; i++) {
+            artistNames[i] = "Artist " + i;
+        }
+        ids = new long[size];
+        titles = new String[size];
+        artists = new String[size];
+        durations = new long[size];
+        albumIds = new long[size];
+        generations = new long[size];
+        long id = 1_000;
+        for (int i = 0; i < size; i++) {
+            id += 1 + random.nextInt(5);
+            ids[i] = id;
+            titles[i] = "Track " + Long.toHexString(random.nextLong());
+            int artist = random.nextInt(artistCount);
+            artists[i] = artistNames[artist];
+            durations[i] = 30_000 + random.nextInt(600_000);
+            albumIds[i] = artist * 4L + random.nextInt(4);
+            generations[i] = i;
+        }
+    }
+
+    List<Song> songs() {
+        List<Song> songs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            songs.add(new Song(ids[i], titles[i], artists[i], MEDIA_STORE_URI + "/" + ids[i], durations[i], albumIds[i]));
+        }
+        return songs;
+    }
+
+    // Ids of a playlist: count entries picked at random from the library, with about 2% already deleted.
+    List<Long> playlistIds(int count, long seed) {
+        Random random = new Random(seed);
+        List<Long> playlist = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            playlist.add(random.nextInt(50) == 0 ? -1L - i : ids[random.nextInt(size)]);
+        }
+        return playlist;
+    }
+
+    RowCursor cursor() {
+        return new RowCursor();
+    }
+
+    final class RowCursor {
+        private int row = -1;
+
+        boolean moveToFirst() {
+            row = 0;
+            return size > 0;
+        }
+
+        boolean moveToNext() {
+            return ++row < size;
+        }
+
+        int getColumnIndexOrThrow(String column) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (COLUMNS[i].equals(column)) return i;
+            }
+            throw new IllegalArgumentException(column);
+        }
+
+        long getLong(int column) {
+            switch (column) {
+                case 0: return ids[row];
+                case 3: return durations[row];
+                case 4: return albumIds[row];
+                case 5: return generations[row];
+                default: throw new IllegalArgumentException("column " + column);
+            }
+        }
+
+        // A real cursor copies each string out of its window, so repeated values come back as new instances.
+        String getString(int column) {
+            switch (column) {
+                case 1: return new String(titles[row]);
+                case 2: return new String(artists[row]);
+                default: throw new IllegalArgumentException("column " + column);
+            }
+        }
+    }
+}